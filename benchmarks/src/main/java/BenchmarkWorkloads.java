@@ -0,0 +1,111 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+// JMH cannot generate code for benchmarks in the default package, and classes in a named package cannot see
+// the default package at all. This bridge lives next to the solver classes and hands each workload to the
+// benchmarks as a plain Supplier, looked up by name through reflection. All setup (reading the fixture,
+// building graphs, picking random inputs) happens here, outside the measured call.
+public class BenchmarkWorkloads {
+    private static final int SAMPLES = 1024;
+    private static final int PATH_STEPS = 2000;
+    private static final int POPULATION_SIZE = 100;
+
+    // Graph construction from already-parsed ways: createGraph plus compute2Core.
+    public static Supplier<Object> graphConstruction(String fixture, long seed) {
+        Overpasser overpasser = load(fixture);
+        return () -> new Graph(overpasser, new Preprocessor(overpasser));
+    }
+
+    public static Supplier<Object> neighbourLookup(String fixture, long seed) {
+        Graph graph = build(fixture);
+        Graph.Node[] nodes = randomNodes(graph, new Random(seed));
+        int[] next = {0};
+        return () -> graph.getNeighbours(nodes[next[0]++ & (SAMPLES - 1)]);
+    }
+
+    public static Supplier<Object> edgeLookup(String fixture, long seed) {
+        Graph graph = build(fixture);
+        Random random = new Random(seed);
+        Graph.Node[] from = randomNodes(graph, random);
+        Graph.Node[] to = new Graph.Node[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            List<Graph.Edge> neighbours = graph.getNeighbours(from[i]);
+            to[i] = neighbours.get(random.nextInt(neighbours.size())).y;
+        }
+        int[] next = {0};
+        return () -> {
+            int i = next[0]++ & (SAMPLES - 1);
+            return graph.getEdge(from[i], to[i]);
+        };
+    }
+
+    public static Supplier<Object> dijkstra(String fixture, long seed) {
+        Graph graph = build(fixture);
+        Random random = new Random(seed);
+        Graph.Node[] from = randomNodes(graph, random);
+        Graph.Node[] to = randomNodes(graph, random);
+        Dijkstra dijkstra = new Dijkstra(graph, null);
+        int[] next = {0};
+        return () -> {
+            int i = next[0]++ & (SAMPLES - 1);
+            return dijkstra.dijkstra(from[i], to[i]);
+        };
+    }
+
+    // Path construction and fitness for random walks of PATH_STEPS steps.
+    public static Supplier<Object> pathFitness(String fixture, long seed) {
+        Graph graph = build(fixture);
+        Random random = new Random(seed);
+        GeneticAlgorithm algorithm = new GeneticAlgorithm(graph, 2, Tuning.MUTATION_RATE, null, seed);
+        List<List<Graph.Node>> walks = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            walks.add(randomWalk(graph, random));
+        }
+        int[] next = {0};
+        return () -> algorithm.new Path(walks.get(next[0]++ & 63));
+    }
+
+    public static Supplier<Object> evolveGeneration(String fixture, long seed) {
+        Graph graph = build(fixture);
+        GeneticAlgorithm algorithm = new GeneticAlgorithm(graph, POPULATION_SIZE, Tuning.MUTATION_RATE, null, seed);
+        return () -> {
+            algorithm.evolveOneGeneration();
+            return algorithm.getFittest();
+        };
+    }
+
+    private static Overpasser load(String fixture) {
+        Overpasser overpasser = new Overpasser();
+        overpasser.load(Path.of(fixture));
+        return overpasser;
+    }
+
+    private static Graph build(String fixture) {
+        Overpasser overpasser = load(fixture);
+        return new Graph(overpasser, new Preprocessor(overpasser));
+    }
+
+    private static Graph.Node[] randomNodes(Graph graph, Random random) {
+        List<Graph.Node> nodes = graph.getNodes();
+        Graph.Node[] picked = new Graph.Node[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            picked[i] = nodes.get(random.nextInt(nodes.size()));
+        }
+        return picked;
+    }
+
+    private static List<Graph.Node> randomWalk(Graph graph, Random random) {
+        List<Graph.Node> walk = new ArrayList<>(PATH_STEPS + 1);
+        Graph.Node current = graph.getNodes().get(random.nextInt(graph.getNodes().size()));
+        walk.add(current);
+        for (int step = 0; step < PATH_STEPS; step++) {
+            List<Graph.Edge> neighbours = graph.getNeighbours(current);
+            current = neighbours.get(random.nextInt(neighbours.size())).y;
+            walk.add(current);
+        }
+        return walk;
+    }
+}
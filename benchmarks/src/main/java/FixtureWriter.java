@@ -0,0 +1,113 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+// Writes the checked-in benchmark fixtures: jittered street grids with missing blocks, shape points and
+// cul-de-sacs, in the same OSM XML the offline ingest reads. Output is fully determined by the seed, so the
+// fixtures can be regenerated byte for byte with: java FixtureWriter fixtures
+public class FixtureWriter {
+    private static final double SPACING_DEGREES = 0.001;
+    private static final double MISSING_BLOCK_RATE = 0.06;
+    private static final double SHAPE_POINT_RATE = 0.3;
+    private static final double CUL_DE_SAC_RATE = 0.05;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "fixtures");
+        Files.createDirectories(directory);
+        write(directory.resolve("small.osm.gz"), 32, 1);
+        write(directory.resolve("medium.osm.gz"), 64, 2);
+        write(directory.resolve("large.osm.gz"), 128, 3);
+    }
+
+    public static void write(Path file, int side, long seed) throws IOException {
+        Random random = new Random(seed);
+        long[][] grid = new long[side][side];
+        StringBuilder nodes = new StringBuilder();
+        StringBuilder ways = new StringBuilder();
+        long[] nextId = {1};
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                grid[row][column] = node(nodes, nextId, row + jitter(random), column + jitter(random));
+            }
+        }
+        long wayId = 1;
+        for (int line = 0; line < side; line++) {
+            for (int direction = 0; direction < 2; direction++) {
+                String name = (direction == 0 ? "Row " : "Column ") + line + (direction == 0 ? " Street" : " Avenue");
+                String highway = line % 8 == 0 ? "secondary" : "residential";
+                List<Long> current = new ArrayList<>();
+                for (int step = 0; step < side; step++) {
+                    int row = direction == 0 ? line : step;
+                    int column = direction == 0 ? step : line;
+                    current.add(grid[row][column]);
+                    if (step == side - 1) {
+                        break;
+                    }
+                    if (random.nextDouble() < MISSING_BLOCK_RATE) {
+                        wayId = way(ways, wayId, current, highway, name);
+                        current = new ArrayList<>();
+                        continue;
+                    }
+                    if (random.nextDouble() < SHAPE_POINT_RATE) {
+                        double bend = random.nextGaussian() * 0.1;
+                        current.add(node(nodes, nextId, direction == 0 ? row + bend : row + 0.5,
+                                direction == 0 ? column + 0.5 : column + bend));
+                    }
+                }
+                wayId = way(ways, wayId, current, highway, name);
+            }
+        }
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                if (random.nextDouble() < CUL_DE_SAC_RATE) {
+                    List<Long> spur = new ArrayList<>();
+                    spur.add(grid[row][column]);
+                    spur.add(node(nodes, nextId, row + 0.3, column + 0.3));
+                    wayId = way(ways, wayId, spur, "residential", "Court " + row + "-" + column);
+                }
+            }
+        }
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8))) {
+            out.write("<?xml version='1.0' encoding='UTF-8'?>\n<osm version=\"0.6\" generator=\"FixtureWriter\">\n");
+            out.write(nodes.toString());
+            out.write(ways.toString());
+            out.write("</osm>\n");
+        }
+        System.out.printf("Wrote %s: %d nodes, %d ways%n", file, nextId[0] - 1, wayId - 1);
+    }
+
+    private static double jitter(Random random) {
+        return random.nextGaussian() * 0.08;
+    }
+
+    private static long node(StringBuilder out, long[] nextId, double row, double column) {
+        long id = nextId[0]++;
+        out.append(String.format(Locale.ROOT, " <node id=\"%d\" lat=\"%.7f\" lon=\"%.7f\"/>%n", id,
+                37.70 + row * SPACING_DEGREES, -122.50 + column * SPACING_DEGREES));
+        return id;
+    }
+
+    private static long way(StringBuilder out, long id, List<Long> nodes, String highway, String name) {
+        if (nodes.size() < 2) {
+            return id;
+        }
+        out.append(" <way id=\"").append(id).append("\">\n");
+        for (long node : nodes) {
+            out.append("  <nd ref=\"").append(node).append("\"/>\n");
+        }
+        out.append("  <tag k=\"highway\" v=\"").append(highway).append("\"/>\n");
+        out.append("  <tag k=\"name\" v=\"").append(name).append("\"/>\n");
+        out.append(" </way>\n");
+        return id + 1;
+    }
+}
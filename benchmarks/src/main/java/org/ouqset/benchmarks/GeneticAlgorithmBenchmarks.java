@@ -0,0 +1,59 @@
+package org.ouqset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GeneticAlgorithmBenchmarks {
+
+    @State(Scope.Thread)
+    public static class Fitness {
+        @Param({"small", "medium", "large"})
+        String size;
+        Supplier<Object> path;
+
+        @Setup
+        public void setup() {
+            path = Workloads.create("pathFitness", size);
+        }
+    }
+
+    // One algorithm per trial and thread: later generations see the visit counts of earlier ones, as in a real day.
+    @State(Scope.Thread)
+    public static class Evolution {
+        @Param({"small", "medium", "large"})
+        String size;
+        Supplier<Object> generation;
+
+        @Setup
+        public void setup() {
+            generation = Workloads.create("evolveGeneration", size);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object pathConstructionAndFitness(Fitness state) {
+        return state.path.get();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object evolveGeneration(Evolution state) {
+        return state.generation.get();
+    }
+}
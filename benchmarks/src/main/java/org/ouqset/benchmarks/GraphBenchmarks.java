@@ -0,0 +1,84 @@
+package org.ouqset.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GraphBenchmarks {
+
+    @State(Scope.Thread)
+    public static class Construction {
+        @Param({"small", "medium", "large"})
+        String size;
+        Supplier<Object> graph;
+
+        @Setup
+        public void setup() {
+            graph = Workloads.create("graphConstruction", size);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lookup {
+        @Param({"small", "medium", "large"})
+        String size;
+        Supplier<Object> neighbours;
+        Supplier<Object> edge;
+
+        @Setup
+        public void setup() {
+            neighbours = Workloads.create("neighbourLookup", size);
+            edge = Workloads.create("edgeLookup", size);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Search {
+        @Param({"small", "medium", "large"})
+        String size;
+        Supplier<Object> dijkstra;
+
+        @Setup
+        public void setup() {
+            dijkstra = Workloads.create("dijkstra", size);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object createGraphAndTwoCore(Construction state) {
+        return state.graph.get();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object getNeighbours(Lookup state) {
+        return state.neighbours.get();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object getEdge(Lookup state) {
+        return state.edge.get();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object dijkstra(Search state) {
+        return state.dijkstra.get();
+    }
+}
@@ -0,0 +1,33 @@
+package org.ouqset.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+// Reaches the default-package BenchmarkWorkloads bridge by reflection; see that class for why.
+final class Workloads {
+    static final long SEED = 42;
+    private static final String BRIDGE = "BenchmarkWorkloads";
+
+    private Workloads() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static Supplier<Object> create(String workload, String size) {
+        Path fixture = Path.of(System.getProperty("fixtures", "fixtures"), size + ".osm.gz");
+        if (!Files.exists(fixture)) {
+            throw new IllegalStateException("Missing fixture " + fixture.toAbsolutePath()
+                    + "; run from the benchmarks directory or pass -Dfixtures=<dir>");
+        }
+        try {
+            return (Supplier<Object>) Class.forName(BRIDGE)
+                    .getMethod(workload, String.class, long.class)
+                    .invoke(null, fixture.toString(), SEED);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Shortest-path tree rooted at the daily anchor. The graph is undirected, so the same tree answers both
+// "cost to get home" and "cost to get here from home".
+public class AnchorOracle {
+    private final Graph graph;
+    private final int anchor;
+    private final double[] distanceHome;
+    private final int[] nextHop;
+
+    public AnchorOracle(Graph graph, Graph.Node anchor) {
+        this.graph = graph;
+        this.anchor = anchor.index;
+        int n = graph.getNodes().size();
+        distanceHome = new double[n];
+        nextHop = new int[n];
+        ShortestPaths engine = new ShortestPaths(graph);
+        engine.searchAll(this.anchor);
+        int[] mirrors = graph.getMirrors();
+        for (int node = 0; node < n; node++) {
+            distanceHome[node] = engine.distance(node);
+            int slot = engine.predecessorSlot(node);
+            nextHop[node] = slot >= 0 ? mirrors[slot] : -1;
+        }
+    }
+
+    public Graph.Node getAnchor() {
+        return graph.getNodes().get(anchor);
+    }
+
+    public double distanceHome(Graph.Node node) {
+        return distanceHome[node.index];
+    }
+
+    public double distanceHome(int node) {
+        return distanceHome[node];
+    }
+
+    public boolean canReturn(Graph.Node node, double budget) {
+        return distanceHome[node.index] <= budget;
+    }
+
+    // Slot of the first edge on the shortest way home, or -1 at the anchor and for unreachable nodes.
+    public int nextHopSlot(int node) {
+        return nextHop[node];
+    }
+
+    // Writes the slots of the shortest way home into out and returns how many were written.
+    public int pathHome(int from, int[] out) {
+        int[] targets = graph.getTargets();
+        int length = 0;
+        for (int slot = nextHop[from]; slot >= 0; slot = nextHop[targets[slot]]) {
+            out[length++] = slot;
+        }
+        return length;
+    }
+
+    // Nodes after from on the shortest way home, ending with the anchor.
+    public List<Graph.Node> pathHome(Graph.Node from) {
+        List<Graph.Node> nodes = graph.getNodes();
+        int[] targets = graph.getTargets();
+        List<Graph.Node> path = new ArrayList<>();
+        for (int slot = nextHop[from.index]; slot >= 0; slot = nextHop[targets[slot]]) {
+            path.add(nodes.get(targets[slot]));
+        }
+        return path;
+    }
+}
@@ -0,0 +1,609 @@
+import java.util.Arrays;
+
+// Edmonds' weighted blossom algorithm, O(n^3), after Galil's "Efficient algorithms for finding maximum matchings
+// in graphs" and Van Rantwijk's reference implementation. Integer weights keep every dual variable integral.
+class BlossomMatching {
+    private final int nvertex;
+    private final int nedge;
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final long[] edgeWeight;
+    private final int[] endpoint;
+    private final int[][] neighbend;
+    private final int[] mate;
+    private final int[] label;
+    private final int[] labelend;
+    private final int[] inblossom;
+    private final int[] blossomparent;
+    private final int[][] blossomchilds;
+    private final int[] blossombase;
+    private final int[][] blossomendps;
+    private final int[] bestedge;
+    private final int[][] blossombestedges;
+    private final IntStack unusedblossoms = new IntStack();
+    private final long[] dualvar;
+    private final boolean[] allowedge;
+    private final IntStack queue = new IntStack();
+
+    private BlossomMatching(int n, int[] from, int[] to, long[] weight) {
+        nvertex = n;
+        nedge = from.length;
+        edgeFrom = from;
+        edgeTo = to;
+        edgeWeight = weight;
+        long maxweight = 0;
+        for (long w : weight) {
+            maxweight = Math.max(maxweight, w);
+        }
+        endpoint = new int[2 * nedge];
+        int[] degree = new int[n];
+        for (int k = 0; k < nedge; k++) {
+            endpoint[2 * k] = from[k];
+            endpoint[2 * k + 1] = to[k];
+            degree[from[k]]++;
+            degree[to[k]]++;
+        }
+        neighbend = new int[n][];
+        for (int v = 0; v < n; v++) {
+            neighbend[v] = new int[degree[v]];
+        }
+        Arrays.fill(degree, 0);
+        for (int k = 0; k < nedge; k++) {
+            neighbend[from[k]][degree[from[k]]++] = 2 * k + 1;
+            neighbend[to[k]][degree[to[k]]++] = 2 * k;
+        }
+        mate = new int[n];
+        Arrays.fill(mate, -1);
+        label = new int[2 * n];
+        labelend = new int[2 * n];
+        Arrays.fill(labelend, -1);
+        inblossom = new int[n];
+        for (int v = 0; v < n; v++) {
+            inblossom[v] = v;
+        }
+        blossomparent = new int[2 * n];
+        Arrays.fill(blossomparent, -1);
+        blossomchilds = new int[2 * n][];
+        blossombase = new int[2 * n];
+        for (int v = 0; v < 2 * n; v++) {
+            blossombase[v] = v < n ? v : -1;
+        }
+        blossomendps = new int[2 * n][];
+        bestedge = new int[2 * n];
+        Arrays.fill(bestedge, -1);
+        blossombestedges = new int[2 * n][];
+        for (int b = n; b < 2 * n; b++) {
+            unusedblossoms.push(b);
+        }
+        dualvar = new long[2 * n];
+        Arrays.fill(dualvar, 0, n, maxweight);
+        allowedge = new boolean[nedge];
+    }
+
+    // Returns mate[i] = j for a minimum-cost perfect matching of the complete graph given by a row-major n x n
+    // cost matrix. n must be even.
+    static int[] minimumPerfectMatching(int n, int[] cost) {
+        int edges = n * (n - 1) / 2;
+        int[] from = new int[edges];
+        int[] to = new int[edges];
+        int[] edgeCost = new int[edges];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                from[k] = i;
+                to[k] = j;
+                edgeCost[k] = cost[i * n + j];
+                k++;
+            }
+        }
+        return minimumCostMatching(n, from, to, edgeCost);
+    }
+
+    // Minimum-cost matching among all maximum-cardinality matchings of the given edge list; unmatched vertices
+    // get -1.
+    static int[] minimumCostMatching(int n, int[] from, int[] to, int[] cost) {
+        long maxCost = 0;
+        for (int c : cost) {
+            maxCost = Math.max(maxCost, c);
+        }
+        long[] weight = new long[cost.length];
+        for (int k = 0; k < cost.length; k++) {
+            weight[k] = maxCost - cost[k];
+        }
+        return new BlossomMatching(n, from, to, weight).solve();
+    }
+
+    private long slack(int k) {
+        return dualvar[edgeFrom[k]] + dualvar[edgeTo[k]] - 2 * edgeWeight[k];
+    }
+
+    private void blossomLeaves(int b, IntStack out) {
+        if (b < nvertex) {
+            out.push(b);
+            return;
+        }
+        for (int t : blossomchilds[b]) {
+            blossomLeaves(t, out);
+        }
+    }
+
+    private int[] leaves(int b) {
+        IntStack out = new IntStack();
+        blossomLeaves(b, out);
+        return out.toArray();
+    }
+
+    private void assignLabel(int w, int t, int p) {
+        while (true) {
+            int b = inblossom[w];
+            label[w] = label[b] = t;
+            labelend[w] = labelend[b] = p;
+            bestedge[w] = bestedge[b] = -1;
+            if (t == 1) {
+                blossomLeaves(b, queue);
+                return;
+            }
+            int base = blossombase[b];
+            w = endpoint[mate[base]];
+            t = 1;
+            p = mate[base] ^ 1;
+        }
+    }
+
+    private int scanBlossom(int v, int w) {
+        IntStack path = new IntStack();
+        int base = -1;
+        while (v != -1 || w != -1) {
+            int b = inblossom[v];
+            if ((label[b] & 4) != 0) {
+                base = blossombase[b];
+                break;
+            }
+            path.push(b);
+            label[b] = 5;
+            if (labelend[b] == -1) {
+                v = -1;
+            } else {
+                v = endpoint[labelend[b]];
+                b = inblossom[v];
+                v = endpoint[labelend[b]];
+            }
+            if (w != -1) {
+                int swap = v;
+                v = w;
+                w = swap;
+            }
+        }
+        for (int i = 0; i < path.size; i++) {
+            label[path.items[i]] = 1;
+        }
+        return base;
+    }
+
+    private void addBlossom(int base, int k) {
+        int v = edgeFrom[k];
+        int w = edgeTo[k];
+        int bb = inblossom[base];
+        int bv = inblossom[v];
+        int bw = inblossom[w];
+        int b = unusedblossoms.pop();
+        blossombase[b] = base;
+        blossomparent[b] = -1;
+        blossomparent[bb] = b;
+        IntStack path = new IntStack();
+        IntStack endps = new IntStack();
+        while (bv != bb) {
+            blossomparent[bv] = b;
+            path.push(bv);
+            endps.push(labelend[bv]);
+            v = endpoint[labelend[bv]];
+            bv = inblossom[v];
+        }
+        path.push(bb);
+        path.reverse();
+        endps.reverse();
+        endps.push(2 * k);
+        while (bw != bb) {
+            blossomparent[bw] = b;
+            path.push(bw);
+            endps.push(labelend[bw] ^ 1);
+            w = endpoint[labelend[bw]];
+            bw = inblossom[w];
+        }
+        blossomchilds[b] = path.toArray();
+        blossomendps[b] = endps.toArray();
+        label[b] = 1;
+        labelend[b] = labelend[bb];
+        dualvar[b] = 0;
+        for (int leaf : leaves(b)) {
+            if (label[inblossom[leaf]] == 2) {
+                queue.push(leaf);
+            }
+            inblossom[leaf] = b;
+        }
+        int[] bestedgeto = new int[2 * nvertex];
+        Arrays.fill(bestedgeto, -1);
+        for (int child : blossomchilds[b]) {
+            int[][] nblists;
+            if (blossombestedges[child] == null) {
+                int[] childLeaves = leaves(child);
+                nblists = new int[childLeaves.length][];
+                for (int i = 0; i < childLeaves.length; i++) {
+                    int[] ends = neighbend[childLeaves[i]];
+                    nblists[i] = new int[ends.length];
+                    for (int j = 0; j < ends.length; j++) {
+                        nblists[i][j] = ends[j] / 2;
+                    }
+                }
+            } else {
+                nblists = new int[][]{blossombestedges[child]};
+            }
+            for (int[] nblist : nblists) {
+                for (int edge : nblist) {
+                    int j = inblossom[edgeTo[edge]] == b ? edgeFrom[edge] : edgeTo[edge];
+                    int bj = inblossom[j];
+                    if (bj != b && label[bj] == 1
+                            && (bestedgeto[bj] == -1 || slack(edge) < slack(bestedgeto[bj]))) {
+                        bestedgeto[bj] = edge;
+                    }
+                }
+            }
+            blossombestedges[child] = null;
+            bestedge[child] = -1;
+        }
+        IntStack best = new IntStack();
+        for (int edge : bestedgeto) {
+            if (edge != -1) {
+                best.push(edge);
+            }
+        }
+        blossombestedges[b] = best.toArray();
+        bestedge[b] = -1;
+        for (int edge : blossombestedges[b]) {
+            if (bestedge[b] == -1 || slack(edge) < slack(bestedge[b])) {
+                bestedge[b] = edge;
+            }
+        }
+    }
+
+    private void expandBlossom(int b, boolean endstage) {
+        for (int s : blossomchilds[b]) {
+            blossomparent[s] = -1;
+            if (s < nvertex) {
+                inblossom[s] = s;
+            } else if (endstage && dualvar[s] == 0) {
+                expandBlossom(s, endstage);
+            } else {
+                for (int leaf : leaves(s)) {
+                    inblossom[leaf] = s;
+                }
+            }
+        }
+        if (!endstage && label[b] == 2) {
+            int[] childs = blossomchilds[b];
+            int[] endps = blossomendps[b];
+            int entrychild = inblossom[endpoint[labelend[b] ^ 1]];
+            int j = indexOf(childs, entrychild);
+            int jstep;
+            int endptrick;
+            if ((j & 1) != 0) {
+                j -= childs.length;
+                jstep = 1;
+                endptrick = 0;
+            } else {
+                jstep = -1;
+                endptrick = 1;
+            }
+            int p = labelend[b];
+            while (j != 0) {
+                label[endpoint[p ^ 1]] = 0;
+                label[endpoint[at(endps, j - endptrick) ^ endptrick ^ 1]] = 0;
+                assignLabel(endpoint[p ^ 1], 2, p);
+                allowedge[at(endps, j - endptrick) / 2] = true;
+                j += jstep;
+                p = at(endps, j - endptrick) ^ endptrick;
+                allowedge[p / 2] = true;
+                j += jstep;
+            }
+            int bv = at(childs, j);
+            label[endpoint[p ^ 1]] = label[bv] = 2;
+            labelend[endpoint[p ^ 1]] = labelend[bv] = p;
+            bestedge[bv] = -1;
+            j += jstep;
+            while (at(childs, j) != entrychild) {
+                bv = at(childs, j);
+                if (label[bv] == 1) {
+                    j += jstep;
+                    continue;
+                }
+                int labelled = -1;
+                for (int leaf : leaves(bv)) {
+                    if (label[leaf] != 0) {
+                        labelled = leaf;
+                        break;
+                    }
+                }
+                if (labelled != -1) {
+                    label[labelled] = 0;
+                    label[endpoint[mate[blossombase[bv]]]] = 0;
+                    assignLabel(labelled, 2, labelend[labelled]);
+                }
+                j += jstep;
+            }
+        }
+        label[b] = labelend[b] = -1;
+        blossomchilds[b] = blossomendps[b] = null;
+        blossombase[b] = -1;
+        blossombestedges[b] = null;
+        bestedge[b] = -1;
+        unusedblossoms.push(b);
+    }
+
+    private void augmentBlossom(int b, int v) {
+        int t = v;
+        while (blossomparent[t] != b) {
+            t = blossomparent[t];
+        }
+        if (t >= nvertex) {
+            augmentBlossom(t, v);
+        }
+        int[] childs = blossomchilds[b];
+        int[] endps = blossomendps[b];
+        int i = indexOf(childs, t);
+        int j = i;
+        int jstep;
+        int endptrick;
+        if ((i & 1) != 0) {
+            j -= childs.length;
+            jstep = 1;
+            endptrick = 0;
+        } else {
+            jstep = -1;
+            endptrick = 1;
+        }
+        while (j != 0) {
+            j += jstep;
+            t = at(childs, j);
+            int p = at(endps, j - endptrick) ^ endptrick;
+            if (t >= nvertex) {
+                augmentBlossom(t, endpoint[p]);
+            }
+            j += jstep;
+            t = at(childs, j);
+            if (t >= nvertex) {
+                augmentBlossom(t, endpoint[p ^ 1]);
+            }
+            mate[endpoint[p]] = p ^ 1;
+            mate[endpoint[p ^ 1]] = p;
+        }
+        blossomchilds[b] = rotate(childs, i);
+        blossomendps[b] = rotate(endps, i);
+        blossombase[b] = blossombase[blossomchilds[b][0]];
+    }
+
+    private void augmentMatching(int k) {
+        for (int side = 0; side < 2; side++) {
+            int s = side == 0 ? edgeFrom[k] : edgeTo[k];
+            int p = side == 0 ? 2 * k + 1 : 2 * k;
+            while (true) {
+                int bs = inblossom[s];
+                if (bs >= nvertex) {
+                    augmentBlossom(bs, s);
+                }
+                mate[s] = p;
+                if (labelend[bs] == -1) {
+                    break;
+                }
+                int t = endpoint[labelend[bs]];
+                int bt = inblossom[t];
+                s = endpoint[labelend[bt]];
+                int j = endpoint[labelend[bt] ^ 1];
+                if (bt >= nvertex) {
+                    augmentBlossom(bt, j);
+                }
+                mate[j] = labelend[bt];
+                p = labelend[bt] ^ 1;
+            }
+        }
+    }
+
+    private int[] solve() {
+        for (int stage = 0; stage < nvertex; stage++) {
+            Arrays.fill(label, 0);
+            Arrays.fill(bestedge, -1);
+            Arrays.fill(blossombestedges, nvertex, 2 * nvertex, null);
+            Arrays.fill(allowedge, false);
+            queue.clear();
+            for (int v = 0; v < nvertex; v++) {
+                if (mate[v] == -1 && label[inblossom[v]] == 0) {
+                    assignLabel(v, 1, -1);
+                }
+            }
+            boolean augmented = false;
+            while (true) {
+                while (queue.size > 0 && !augmented) {
+                    int v = queue.pop();
+                    for (int p : neighbend[v]) {
+                        int k = p / 2;
+                        int w = endpoint[p];
+                        if (inblossom[v] == inblossom[w]) {
+                            continue;
+                        }
+                        long kslack = 0;
+                        if (!allowedge[k]) {
+                            kslack = slack(k);
+                            if (kslack <= 0) {
+                                allowedge[k] = true;
+                            }
+                        }
+                        if (allowedge[k]) {
+                            if (label[inblossom[w]] == 0) {
+                                assignLabel(w, 2, p ^ 1);
+                            } else if (label[inblossom[w]] == 1) {
+                                int base = scanBlossom(v, w);
+                                if (base >= 0) {
+                                    addBlossom(base, k);
+                                } else {
+                                    augmentMatching(k);
+                                    augmented = true;
+                                    break;
+                                }
+                            } else if (label[w] == 0) {
+                                label[w] = 2;
+                                labelend[w] = p ^ 1;
+                            }
+                        } else if (label[inblossom[w]] == 1) {
+                            int b = inblossom[v];
+                            if (bestedge[b] == -1 || kslack < slack(bestedge[b])) {
+                                bestedge[b] = k;
+                            }
+                        } else if (label[w] == 0) {
+                            if (bestedge[w] == -1 || kslack < slack(bestedge[w])) {
+                                bestedge[w] = k;
+                            }
+                        }
+                    }
+                }
+                if (augmented) {
+                    break;
+                }
+                int deltatype = -1;
+                long delta = 0;
+                int deltaedge = -1;
+                int deltablossom = -1;
+                for (int v = 0; v < nvertex; v++) {
+                    if (label[inblossom[v]] == 0 && bestedge[v] != -1) {
+                        long d = slack(bestedge[v]);
+                        if (deltatype == -1 || d < delta) {
+                            delta = d;
+                            deltatype = 2;
+                            deltaedge = bestedge[v];
+                        }
+                    }
+                }
+                for (int b = 0; b < 2 * nvertex; b++) {
+                    if (blossomparent[b] == -1 && label[b] == 1 && bestedge[b] != -1) {
+                        long d = slack(bestedge[b]) / 2;
+                        if (deltatype == -1 || d < delta) {
+                            delta = d;
+                            deltatype = 3;
+                            deltaedge = bestedge[b];
+                        }
+                    }
+                }
+                for (int b = nvertex; b < 2 * nvertex; b++) {
+                    if (blossombase[b] >= 0 && blossomparent[b] == -1 && label[b] == 2
+                            && (deltatype == -1 || dualvar[b] < delta)) {
+                        delta = dualvar[b];
+                        deltatype = 4;
+                        deltablossom = b;
+                    }
+                }
+                if (deltatype == -1) {
+                    deltatype = 1;
+                    long minDual = Long.MAX_VALUE;
+                    for (int v = 0; v < nvertex; v++) {
+                        minDual = Math.min(minDual, dualvar[v]);
+                    }
+                    delta = Math.max(0, minDual);
+                }
+                for (int v = 0; v < nvertex; v++) {
+                    if (label[inblossom[v]] == 1) {
+                        dualvar[v] -= delta;
+                    } else if (label[inblossom[v]] == 2) {
+                        dualvar[v] += delta;
+                    }
+                }
+                for (int b = nvertex; b < 2 * nvertex; b++) {
+                    if (blossombase[b] >= 0 && blossomparent[b] == -1) {
+                        if (label[b] == 1) {
+                            dualvar[b] += delta;
+                        } else if (label[b] == 2) {
+                            dualvar[b] -= delta;
+                        }
+                    }
+                }
+                if (deltatype == 1) {
+                    break;
+                } else if (deltatype == 2) {
+                    allowedge[deltaedge] = true;
+                    int i = edgeFrom[deltaedge];
+                    if (label[inblossom[i]] == 0) {
+                        i = edgeTo[deltaedge];
+                    }
+                    queue.push(i);
+                } else if (deltatype == 3) {
+                    allowedge[deltaedge] = true;
+                    queue.push(edgeFrom[deltaedge]);
+                } else {
+                    expandBlossom(deltablossom, false);
+                }
+            }
+            if (!augmented) {
+                break;
+            }
+            for (int b = nvertex; b < 2 * nvertex; b++) {
+                if (blossomparent[b] == -1 && blossombase[b] >= 0 && label[b] == 1 && dualvar[b] == 0) {
+                    expandBlossom(b, true);
+                }
+            }
+        }
+        int[] result = new int[nvertex];
+        for (int v = 0; v < nvertex; v++) {
+            result[v] = mate[v] >= 0 ? endpoint[mate[v]] : -1;
+        }
+        return result;
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int at(int[] values, int index) {
+        return values[index < 0 ? index + values.length : index];
+    }
+
+    private static int[] rotate(int[] values, int start) {
+        int[] rotated = new int[values.length];
+        System.arraycopy(values, start, rotated, 0, values.length - start);
+        System.arraycopy(values, 0, rotated, values.length - start, start);
+        return rotated;
+    }
+
+    private static final class IntStack {
+        private int[] items = new int[16];
+        private int size;
+
+        void push(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        int pop() {
+            return items[--size];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void reverse() {
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int swap = items[i];
+                items[i] = items[j];
+                items[j] = swap;
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class ChinesePostman {
+    private static final int EXACT_MATCHING_LIMIT = 500;
+    private static final int CANDIDATE_NEIGHBOURS = 16;
+    private final Graph graph;
+    private final int exactMatchingLimit;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] mirrors;
+    private final double[] weights;
+    private final ThreadLocal<ShortestPaths> engines;
+    private final ThreadLocal<int[]> pathBuffers;
+
+    public record Tour(int start, int[] slots, double distance, double edgeDistance, double lowerBound,
+                       boolean exactMatching) {
+        public double deadheadDistance() {
+            return distance - edgeDistance;
+        }
+    }
+
+    public ChinesePostman(Graph graph) {
+        this(graph, EXACT_MATCHING_LIMIT);
+    }
+
+    ChinesePostman(Graph graph, int exactMatchingLimit) {
+        this.graph = graph;
+        this.exactMatchingLimit = exactMatchingLimit;
+        this.offsets = graph.getOffsets();
+        this.targets = graph.getTargets();
+        this.mirrors = graph.getMirrors();
+        this.weights = graph.getSlotDistances();
+        this.engines = ThreadLocal.withInitial(() -> new ShortestPaths(graph));
+        this.pathBuffers = ThreadLocal.withInitial(() -> new int[graph.getNodes().size()]);
+    }
+
+    public Tour solve(Graph.Node start) {
+        long startTime = System.nanoTime();
+        int n = graph.getNodes().size();
+        int[] odd = IntStream.range(0, n).filter(i -> ((offsets[i + 1] - offsets[i]) & 1) != 0).toArray();
+        int k = odd.length;
+        int[] oddPosition = new int[n];
+        Arrays.fill(oddPosition, -1);
+        for (int i = 0; i < k; i++) {
+            oddPosition[odd[i]] = i;
+        }
+
+        boolean exact = k <= exactMatchingLimit;
+        int neighbours = exact ? k - 1 : Math.min(CANDIDATE_NEIGHBOURS, k - 1);
+        int[][] nearestOdd = new int[k][];
+        double[] nearestOddDistance = new double[k];
+        int[][] nearestOddMillimetres = new int[k][];
+        IntStream.range(0, k).parallel().forEach(i -> {
+            ShortestPaths engine = engines.get();
+            int[] found = new int[neighbours];
+            int[] count = new int[1];
+            engine.searchUntil(odd[i], node -> {
+                if (node != odd[i] && oddPosition[node] >= 0) {
+                    found[count[0]++] = oddPosition[node];
+                }
+                return count[0] == neighbours;
+            });
+            int[] millimetres = new int[count[0]];
+            for (int j = 0; j < count[0]; j++) {
+                millimetres[j] = toMillimetres(engine.distance(odd[found[j]]));
+            }
+            nearestOdd[i] = Arrays.copyOf(found, count[0]);
+            nearestOddMillimetres[i] = millimetres;
+            nearestOddDistance[i] = count[0] > 0 ? engine.distance(odd[found[0]]) : 0;
+        });
+        long matrixTime = System.nanoTime() - startTime;
+
+        long phaseStart = System.nanoTime();
+        int[] mate = exact ? matchExactly(k, nearestOdd, nearestOddMillimetres) : matchCandidates(k, nearestOdd, nearestOddMillimetres);
+        if (!exact) {
+            matchLeftovers(odd, oddPosition, mate);
+        }
+        long matchingTime = System.nanoTime() - phaseStart;
+
+        phaseStart = System.nanoTime();
+        int[][] duplicated = new int[k][];
+        IntStream.range(0, k).parallel().filter(i -> i < mate[i]).forEach(i -> {
+            ShortestPaths engine = engines.get();
+            engine.query(odd[i], odd[mate[i]]);
+            int[] path = pathBuffers.get();
+            int length = 0;
+            for (int slot = engine.predecessorSlot(odd[mate[i]]); slot >= 0; slot = engine.predecessorSlot(targets[mirrors[slot]])) {
+                path[length++] = slot;
+            }
+            duplicated[i] = Arrays.copyOf(path, length);
+        });
+        int[] slots = eulerCircuit(start.index, duplicated);
+        long circuitTime = System.nanoTime() - phaseStart;
+
+        double edgeDistance = 0;
+        for (int id = 0; id < graph.getEdgeCount(); id++) {
+            edgeDistance += graph.getEdgeById(id).distance;
+        }
+        double distance = 0;
+        for (int slot : slots) {
+            distance += weights[slot];
+        }
+        double lowerBound = edgeDistance;
+        for (double nearest : nearestOddDistance) {
+            lowerBound += nearest / 2;
+        }
+        System.out.printf("Chinese postman: %d odd nodes, %s matching, tour %.2f km over %.2f km of road, lower bound %.2f km (+%.2f%%)%n",
+                k, exact ? "exact" : "candidate", distance, edgeDistance, lowerBound, 100 * (distance - lowerBound) / lowerBound);
+        System.out.printf("Chinese postman timings: distances %d ms, matching %d ms, circuit %d ms%n",
+                matrixTime / 1_000_000, matchingTime / 1_000_000, circuitTime / 1_000_000);
+        return new Tour(start.index, slots, distance, edgeDistance, lowerBound, exact);
+    }
+
+    public List<Graph.Node> getNodes(Tour tour) {
+        List<Graph.Node> nodes = graph.getNodes();
+        List<Graph.Node> path = new ArrayList<>(tour.slots().length + 1);
+        path.add(nodes.get(tour.start()));
+        for (int slot : tour.slots()) {
+            path.add(nodes.get(targets[slot]));
+        }
+        return path;
+    }
+
+    private static int toMillimetres(double kilometres) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.round(kilometres * 1_000_000));
+    }
+
+    private static int[] matchExactly(int k, int[][] nearestOdd, int[][] millimetres) {
+        int[] cost = new int[k * k];
+        Arrays.fill(cost, Integer.MAX_VALUE);
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < nearestOdd[i].length; j++) {
+                int other = nearestOdd[i][j];
+                int a = Math.min(i, other);
+                int b = Math.max(i, other);
+                cost[a * k + b] = Math.min(cost[a * k + b], millimetres[i][j]);
+            }
+        }
+        return BlossomMatching.minimumPerfectMatching(k, cost);
+    }
+
+    // Exact matching restricted to each odd node's nearest odd neighbours; long-range pairs are almost never
+    // part of an optimal postman matching, and the sparse graph keeps the blossom solver fast.
+    private static int[] matchCandidates(int k, int[][] nearestOdd, int[][] millimetres) {
+        long[] pairs = new long[0];
+        int count = 0;
+        for (int i = 0; i < k; i++) {
+            if (count + nearestOdd[i].length > pairs.length) {
+                pairs = Arrays.copyOf(pairs, Math.max(count + nearestOdd[i].length, pairs.length * 2));
+            }
+            for (int j = 0; j < nearestOdd[i].length; j++) {
+                int other = nearestOdd[i][j];
+                pairs[count++] = (long) Math.min(i, other) * k + Math.max(i, other);
+            }
+        }
+        Arrays.sort(pairs, 0, count);
+        int[] from = new int[count];
+        int[] to = new int[count];
+        int[] cost = new int[count];
+        int edges = 0;
+        for (int p = 0; p < count; p++) {
+            if (p > 0 && pairs[p] == pairs[p - 1]) {
+                continue;
+            }
+            from[edges] = (int) (pairs[p] / k);
+            to[edges] = (int) (pairs[p] % k);
+            cost[edges] = candidateCost(from[edges], to[edges], nearestOdd, millimetres);
+            edges++;
+        }
+        return BlossomMatching.minimumCostMatching(k, Arrays.copyOf(from, edges), Arrays.copyOf(to, edges),
+                Arrays.copyOf(cost, edges));
+    }
+
+    private static int candidateCost(int a, int b, int[][] nearestOdd, int[][] millimetres) {
+        int cost = Integer.MAX_VALUE;
+        for (int j = 0; j < nearestOdd[a].length; j++) {
+            if (nearestOdd[a][j] == b) {
+                cost = Math.min(cost, millimetres[a][j]);
+            }
+        }
+        for (int j = 0; j < nearestOdd[b].length; j++) {
+            if (nearestOdd[b][j] == a) {
+                cost = Math.min(cost, millimetres[b][j]);
+            }
+        }
+        return cost;
+    }
+
+    private void matchLeftovers(int[] odd, int[] oddPosition, int[] mate) {
+        ShortestPaths engine = engines.get();
+        for (int i = 0; i < mate.length; i++) {
+            if (mate[i] >= 0) {
+                continue;
+            }
+            int source = i;
+            int[] nearest = {-1};
+            engine.searchUntil(odd[i], node -> {
+                int position = oddPosition[node];
+                if (position >= 0 && position != source && mate[position] < 0) {
+                    nearest[0] = position;
+                    return true;
+                }
+                return false;
+            });
+            if (nearest[0] < 0) {
+                throw new IllegalStateException("Odd node " + graph.getNodes().get(odd[i]).id + " cannot reach another unmatched odd node");
+            }
+            mate[i] = nearest[0];
+            mate[nearest[0]] = i;
+        }
+    }
+
+    private int[] eulerCircuit(int start, int[][] duplicated) {
+        int edgeCount = graph.getEdgeCount();
+        int total = edgeCount;
+        for (int[] path : duplicated) {
+            if (path != null) {
+                total += path.length;
+            }
+        }
+        int[] edgeSlot = new int[total];
+        for (int id = 0; id < edgeCount; id++) {
+            edgeSlot[id] = graph.getEdgeById(id).index;
+        }
+        int next = edgeCount;
+        for (int[] path : duplicated) {
+            if (path != null) {
+                System.arraycopy(path, 0, edgeSlot, next, path.length);
+                next += path.length;
+            }
+        }
+
+        int n = graph.getNodes().size();
+        int[] incidence = new int[n + 1];
+        for (int slot : edgeSlot) {
+            incidence[owner(slot) + 1]++;
+            incidence[targets[slot] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            incidence[i + 1] += incidence[i];
+        }
+        int[] fill = Arrays.copyOf(incidence, n);
+        int[] incident = new int[2 * total];
+        for (int e = 0; e < total; e++) {
+            incident[fill[owner(edgeSlot[e])]++] = e;
+            incident[fill[targets[edgeSlot[e]]]++] = e;
+        }
+
+        boolean[] used = new boolean[total];
+        int[] cursor = Arrays.copyOf(incidence, n);
+        int[] nodeStack = new int[total + 1];
+        int[] slotStack = new int[total + 1];
+        int[] circuit = new int[total];
+        int stackSize = 1;
+        int length = total;
+        nodeStack[0] = start;
+        slotStack[0] = -1;
+        while (stackSize > 0) {
+            int node = nodeStack[stackSize - 1];
+            while (cursor[node] < incidence[node + 1] && used[incident[cursor[node]]]) {
+                cursor[node]++;
+            }
+            if (cursor[node] < incidence[node + 1]) {
+                int e = incident[cursor[node]++];
+                used[e] = true;
+                int slot = owner(edgeSlot[e]) == node ? edgeSlot[e] : mirrors[edgeSlot[e]];
+                nodeStack[stackSize] = targets[slot];
+                slotStack[stackSize] = slot;
+                stackSize++;
+            } else {
+                stackSize--;
+                if (slotStack[stackSize] >= 0) {
+                    circuit[--length] = slotStack[stackSize];
+                }
+            }
+        }
+        if (length != 0) {
+            throw new IllegalStateException("Graph is not connected; " + length + " edges are unreachable from the start node");
+        }
+        return circuit;
+    }
+
+    private int owner(int slot) {
+        return targets[mirrors[slot]];
+    }
+
+    public static void main(String[] args) {
+        Graph graph = GraphSnapshot.loadOrBuild(GraphSnapshot.DEFAULT_PATH);
+        Graph.Node start = graph.getNodeById(Tuning.ANCHOR_NODE_ID);
+        ChinesePostman postman = new ChinesePostman(graph);
+        postman.solve(start != null ? start : graph.getCentralNode());
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+class ConcurrentUnion {
+    private final AtomicIntegerArray parent;
+
+    public ConcurrentUnion(int n) {
+        parent = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++) {
+            parent.set(i, i);
+        }
+    }
+
+    public int find(int x) {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x) {
+                return x;
+            }
+            int grandparent = parent.get(p);
+            if (p != grandparent) {
+                parent.compareAndSet(x, p, grandparent);
+            }
+            x = grandparent;
+        }
+    }
+
+    // Roots are always linked from the lower index to the higher one, so concurrent links can never form a cycle.
+    public void unionFind(int x, int y) {
+        while (true) {
+            int rootX = find(x);
+            int rootY = find(y);
+            if (rootX == rootY) {
+                return;
+            }
+            if (rootX < rootY ? parent.compareAndSet(rootX, rootX, rootY) : parent.compareAndSet(rootY, rootY, rootX)) {
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return parent.length();
+    }
+
+    public int largestRoot(boolean parallel) {
+        int n = parent.length();
+        if (n == 0) {
+            return -1;
+        }
+        int[] roots = new int[n];
+        AtomicIntegerArray sizes = new AtomicIntegerArray(n);
+        IntStream indices = parallel ? IntStream.range(0, n).parallel() : IntStream.range(0, n);
+        indices.forEach(i -> {
+            roots[i] = find(i);
+            sizes.incrementAndGet(roots[i]);
+        });
+        IntStream candidates = parallel ? IntStream.range(0, n).parallel() : IntStream.range(0, n);
+        return candidates.filter(i -> roots[i] == i)
+                .reduce((a, b) -> {
+                    int sizeA = sizes.get(a);
+                    int sizeB = sizes.get(b);
+                    return sizeA > sizeB || (sizeA == sizeB && a < b) ? a : b;
+                })
+                .orElse(-1);
+    }
+}
@@ -0,0 +1,612 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+// Shortest-path index for the undirected road graph. Nodes are contracted in edge-difference order; each node
+// keeps only its edges to higher-ranked nodes, so a query is two small upward Dijkstra searches that meet at the
+// highest node of the path. An edge's via is the contracted middle node of a shortcut, or -(slot + 1) for an
+// original edge.
+public class ContractionHierarchy {
+    private static final int MAGIC = 0x45534348;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private final Graph graph;
+    private final int[] rank;
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final double[] upWeights;
+    private final int[] upVia;
+
+    private ContractionHierarchy(Graph graph, int[] rank, int[] upOffsets, int[] upTargets, double[] upWeights, int[] upVia) {
+        this.graph = graph;
+        this.rank = rank;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upVia = upVia;
+    }
+
+    public static ContractionHierarchy loadOrBuild(Graph graph, Path graphFile) {
+        Path file = graphFile.resolveSibling(graphFile.getFileName() + ".ch");
+        if (Files.exists(file)) {
+            try {
+                long start = System.nanoTime();
+                ContractionHierarchy hierarchy = read(graph, file);
+                System.out.printf("Loaded contraction hierarchy %s in %d ms%n", file, (System.nanoTime() - start) / 1_000_000);
+                return hierarchy;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable contraction hierarchy " + file + ": " + e.getMessage());
+            }
+        }
+        ContractionHierarchy hierarchy = build(graph);
+        try {
+            hierarchy.write(file);
+        } catch (IOException e) {
+            System.err.println("Could not write contraction hierarchy " + file + ": " + e.getMessage());
+        }
+        return hierarchy;
+    }
+
+    public static ContractionHierarchy build(Graph graph) {
+        long start = System.nanoTime();
+        return new Builder(graph).build(start);
+    }
+
+    public Query query() {
+        return new Query();
+    }
+
+    public int getShortcutCount() {
+        int shortcuts = 0;
+        for (int via : upVia) {
+            if (via >= 0) {
+                shortcuts++;
+            }
+        }
+        return shortcuts;
+    }
+
+    private static class Builder {
+        private final Graph graph;
+        private final int n;
+        private final int[][] neighbours;
+        private final double[][] weights;
+        private final int[][] vias;
+        private final int[] degree;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+        private final int[][] upNeighbours;
+        private final double[][] upWeights;
+        private final int[][] upVias;
+        private final int[] upDegree;
+        private final double[] witnessDist;
+        private final int[] witnessStamp;
+        private int witnessEpoch;
+        private double[] heapKeys = new double[64];
+        private int[] heapNodes = new int[64];
+        private int heapSize;
+
+        Builder(Graph graph) {
+            this.graph = graph;
+            n = graph.getNodes().size();
+            int[] offsets = graph.getOffsets();
+            int[] targets = graph.getTargets();
+            double[] distances = graph.getSlotDistances();
+            neighbours = new int[n][];
+            weights = new double[n][];
+            vias = new int[n][];
+            degree = new int[n];
+            for (int v = 0; v < n; v++) {
+                int capacity = Math.max(4, offsets[v + 1] - offsets[v]);
+                neighbours[v] = new int[capacity];
+                weights[v] = new double[capacity];
+                vias[v] = new int[capacity];
+                for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                    if (targets[slot] != v) {
+                        addOrImprove(v, targets[slot], distances[slot], -(slot + 1));
+                    }
+                }
+            }
+            contracted = new boolean[n];
+            contractedNeighbours = new int[n];
+            upNeighbours = new int[n][];
+            upWeights = new double[n][];
+            upVias = new int[n][];
+            upDegree = new int[n];
+            witnessDist = new double[n];
+            witnessStamp = new int[n];
+        }
+
+        ContractionHierarchy build(long start) {
+            PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+            for (int v = 0; v < n; v++) {
+                queue.add(new long[]{priority(v), v});
+            }
+            int[] rank = new int[n];
+            int next = 0;
+            while (!queue.isEmpty()) {
+                long[] top = queue.poll();
+                int v = (int) top[1];
+                long current = priority(v);
+                if (!queue.isEmpty() && current > queue.peek()[0]) {
+                    queue.add(new long[]{current, v});
+                    continue;
+                }
+                rank[v] = next++;
+                contract(v);
+            }
+
+            int[] upOffsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                upOffsets[v + 1] = upOffsets[v] + upDegree[v];
+            }
+            int[] targets = new int[upOffsets[n]];
+            double[] edgeWeights = new double[upOffsets[n]];
+            int[] edgeVias = new int[upOffsets[n]];
+            for (int v = 0; v < n; v++) {
+                System.arraycopy(upNeighbours[v], 0, targets, upOffsets[v], upDegree[v]);
+                System.arraycopy(upWeights[v], 0, edgeWeights, upOffsets[v], upDegree[v]);
+                System.arraycopy(upVias[v], 0, edgeVias, upOffsets[v], upDegree[v]);
+            }
+            ContractionHierarchy hierarchy = new ContractionHierarchy(graph, rank, upOffsets, targets, edgeWeights, edgeVias);
+            System.out.printf("Contraction hierarchy: %d nodes, %d upward edges (%d shortcuts) in %d ms%n",
+                    n, targets.length, hierarchy.getShortcutCount(), (System.nanoTime() - start) / 1_000_000);
+            return hierarchy;
+        }
+
+        private long priority(int v) {
+            int shortcuts = contractNode(v, false);
+            return (long) shortcuts - degree[v] + contractedNeighbours[v];
+        }
+
+        private void contract(int v) {
+            contractNode(v, true);
+            upNeighbours[v] = Arrays.copyOf(neighbours[v], degree[v]);
+            upWeights[v] = Arrays.copyOf(weights[v], degree[v]);
+            upVias[v] = Arrays.copyOf(vias[v], degree[v]);
+            upDegree[v] = degree[v];
+            contracted[v] = true;
+            for (int i = 0; i < degree[v]; i++) {
+                int u = neighbours[v][i];
+                remove(u, v);
+                contractedNeighbours[u]++;
+            }
+        }
+
+        // Counts (and when apply is set, inserts) the shortcuts needed to keep distances between v's neighbours
+        // once v is gone.
+        private int contractNode(int v, boolean apply) {
+            int shortcuts = 0;
+            int count = degree[v];
+            int[] around = Arrays.copyOf(neighbours[v], count);
+            double[] aroundWeights = Arrays.copyOf(weights[v], count);
+            for (int i = 0; i < count; i++) {
+                double limit = 0;
+                for (int j = i + 1; j < count; j++) {
+                    limit = Math.max(limit, aroundWeights[i] + aroundWeights[j]);
+                }
+                witnessSearch(around[i], v, limit);
+                for (int j = i + 1; j < count; j++) {
+                    double viaV = aroundWeights[i] + aroundWeights[j];
+                    if (witnessStamp[around[j]] == witnessEpoch && witnessDist[around[j]] <= viaV) {
+                        continue;
+                    }
+                    shortcuts++;
+                    if (apply) {
+                        addOrImprove(around[i], around[j], viaV, v);
+                        addOrImprove(around[j], around[i], viaV, v);
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        private void witnessSearch(int source, int skip, double limit) {
+            witnessEpoch++;
+            heapSize = 0;
+            witnessStamp[source] = witnessEpoch;
+            witnessDist[source] = 0;
+            push(0, source);
+            int settled = 0;
+            while (heapSize > 0 && settled < WITNESS_SETTLE_LIMIT) {
+                double key = heapKeys[0];
+                int node = pop();
+                if (key > witnessDist[node]) {
+                    continue;
+                }
+                if (key > limit) {
+                    break;
+                }
+                settled++;
+                for (int i = 0; i < degree[node]; i++) {
+                    int next = neighbours[node][i];
+                    if (next == skip) {
+                        continue;
+                    }
+                    double candidate = key + weights[node][i];
+                    if (witnessStamp[next] != witnessEpoch || candidate < witnessDist[next]) {
+                        witnessStamp[next] = witnessEpoch;
+                        witnessDist[next] = candidate;
+                        push(candidate, next);
+                    }
+                }
+            }
+        }
+
+        private void addOrImprove(int from, int to, double weight, int via) {
+            for (int i = 0; i < degree[from]; i++) {
+                if (neighbours[from][i] == to) {
+                    if (weight < weights[from][i]) {
+                        weights[from][i] = weight;
+                        vias[from][i] = via;
+                    }
+                    return;
+                }
+            }
+            if (degree[from] == neighbours[from].length) {
+                int capacity = degree[from] * 2;
+                neighbours[from] = Arrays.copyOf(neighbours[from], capacity);
+                weights[from] = Arrays.copyOf(weights[from], capacity);
+                vias[from] = Arrays.copyOf(vias[from], capacity);
+            }
+            neighbours[from][degree[from]] = to;
+            weights[from][degree[from]] = weight;
+            vias[from][degree[from]] = via;
+            degree[from]++;
+        }
+
+        private void remove(int from, int to) {
+            for (int i = 0; i < degree[from]; i++) {
+                if (neighbours[from][i] == to) {
+                    int last = --degree[from];
+                    neighbours[from][i] = neighbours[from][last];
+                    weights[from][i] = weights[from][last];
+                    vias[from][i] = vias[from][last];
+                    return;
+                }
+            }
+        }
+
+        private void push(double key, int node) {
+            if (heapSize == heapKeys.length) {
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+                heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+            }
+            int position = heapSize++;
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (heapKeys[parent] <= key) {
+                    break;
+                }
+                heapKeys[position] = heapKeys[parent];
+                heapNodes[position] = heapNodes[parent];
+                position = parent;
+            }
+            heapKeys[position] = key;
+            heapNodes[position] = node;
+        }
+
+        private int pop() {
+            int top = heapNodes[0];
+            double key = heapKeys[--heapSize];
+            int node = heapNodes[heapSize];
+            int position = 0;
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                    child++;
+                }
+                if (heapKeys[child] >= key) {
+                    break;
+                }
+                heapKeys[position] = heapKeys[child];
+                heapNodes[position] = heapNodes[child];
+                position = child;
+            }
+            heapKeys[position] = key;
+            heapNodes[position] = node;
+            return top;
+        }
+    }
+
+    // Per-thread search state; reused across queries so lookups do not allocate.
+    public class Query {
+        private final Search forward = new Search();
+        private final Search backward = new Search();
+        private final int[] chain = new int[rank.length];
+        private final int[] unpackStack = new int[2 * upTargets.length + 2];
+        private int meeting = -1;
+
+        public double distance(int source, int target) {
+            forward.start(source);
+            backward.start(target);
+            double best = Double.POSITIVE_INFINITY;
+            meeting = -1;
+            while (true) {
+                boolean forwardDone = forward.heapSize == 0 || forward.heapKeys[0] >= best;
+                boolean backwardDone = backward.heapSize == 0 || backward.heapKeys[0] >= best;
+                if (forwardDone && backwardDone) {
+                    break;
+                }
+                Search search = !forwardDone && (backwardDone || forward.heapKeys[0] <= backward.heapKeys[0]) ? forward : backward;
+                Search other = search == forward ? backward : forward;
+                int node = search.settleNext();
+                if (node < 0) {
+                    continue;
+                }
+                double total = search.dist[node] + other.distance(node);
+                if (total < best) {
+                    best = total;
+                    meeting = node;
+                }
+            }
+            return best;
+        }
+
+        // Writes the graph slots of the shortest path from source to target into out and returns how many were
+        // written, or -1 if target is unreachable.
+        public int path(int source, int target, int[] out) {
+            if (Double.isInfinite(distance(source, target))) {
+                return -1;
+            }
+            int nodes = 0;
+            for (int node = meeting; node != source; node = forward.pred[node]) {
+                chain[nodes++] = node;
+            }
+            chain[nodes++] = source;
+            reverse(chain, 0, nodes);
+            for (int node = meeting; node != target; ) {
+                node = backward.pred[node];
+                chain[nodes++] = node;
+            }
+            int length = 0;
+            for (int i = 0; i + 1 < nodes; i++) {
+                length = unpack(chain[i], chain[i + 1], out, length);
+            }
+            return length;
+        }
+
+        private int unpack(int a, int b, int[] out, int length) {
+            int top = 0;
+            unpackStack[top++] = a;
+            unpackStack[top++] = b;
+            while (top > 0) {
+                int to = unpackStack[--top];
+                int from = unpackStack[--top];
+                boolean fromIsLower = rank[from] < rank[to];
+                int via = viaOf(fromIsLower ? from : to, fromIsLower ? to : from);
+                if (via < 0) {
+                    int slot = -via - 1;
+                    out[length++] = fromIsLower ? slot : graph.getMirrors()[slot];
+                } else {
+                    unpackStack[top++] = via;
+                    unpackStack[top++] = to;
+                    unpackStack[top++] = from;
+                    unpackStack[top++] = via;
+                }
+            }
+            return length;
+        }
+
+        private class Search {
+            private final double[] dist = new double[rank.length];
+            private final int[] pred = new int[rank.length];
+            private final int[] stamp = new int[rank.length];
+            private final boolean[] settled = new boolean[rank.length];
+            private final double[] heapKeys = new double[upTargets.length + 1];
+            private final int[] heapNodes = new int[upTargets.length + 1];
+            private int heapSize;
+            private int epoch;
+
+            void start(int source) {
+                epoch++;
+                if (epoch == Integer.MAX_VALUE) {
+                    Arrays.fill(stamp, 0);
+                    epoch = 1;
+                }
+                heapSize = 0;
+                reach(source, 0, -1);
+            }
+
+            double distance(int node) {
+                return stamp[node] == epoch ? dist[node] : Double.POSITIVE_INFINITY;
+            }
+
+            private void reach(int node, double distance, int from) {
+                if (stamp[node] != epoch) {
+                    stamp[node] = epoch;
+                    settled[node] = false;
+                } else if (distance >= dist[node]) {
+                    return;
+                }
+                dist[node] = distance;
+                pred[node] = from;
+                push(distance, node);
+            }
+
+            int settleNext() {
+                double key = heapKeys[0];
+                int node = pop();
+                if (settled[node] || key > dist[node]) {
+                    return -1;
+                }
+                settled[node] = true;
+                for (int e = upOffsets[node]; e < upOffsets[node + 1]; e++) {
+                    reach(upTargets[e], key + upWeights[e], node);
+                }
+                return node;
+            }
+
+            private void push(double key, int node) {
+                int position = heapSize++;
+                while (position > 0) {
+                    int parent = (position - 1) >>> 1;
+                    if (heapKeys[parent] <= key) {
+                        break;
+                    }
+                    heapKeys[position] = heapKeys[parent];
+                    heapNodes[position] = heapNodes[parent];
+                    position = parent;
+                }
+                heapKeys[position] = key;
+                heapNodes[position] = node;
+            }
+
+            private int pop() {
+                int top = heapNodes[0];
+                double key = heapKeys[--heapSize];
+                int node = heapNodes[heapSize];
+                int position = 0;
+                while (true) {
+                    int child = 2 * position + 1;
+                    if (child >= heapSize) {
+                        break;
+                    }
+                    if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                        child++;
+                    }
+                    if (heapKeys[child] >= key) {
+                        break;
+                    }
+                    heapKeys[position] = heapKeys[child];
+                    heapNodes[position] = heapNodes[child];
+                    position = child;
+                }
+                heapKeys[position] = key;
+                heapNodes[position] = node;
+                return top;
+            }
+        }
+    }
+
+    private int viaOf(int lower, int higher) {
+        for (int e = upOffsets[lower]; e < upOffsets[lower + 1]; e++) {
+            if (upTargets[e] == higher) {
+                return upVia[e];
+            }
+        }
+        throw new IllegalStateException("No hierarchy edge between " + lower + " and " + higher);
+    }
+
+    private static void reverse(int[] values, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    private static long fingerprint(Graph graph) {
+        long hash = graph.getNodes().size();
+        hash = hash * 31 + Arrays.hashCode(graph.getOffsets());
+        hash = hash * 31 + Arrays.hashCode(graph.getTargets());
+        hash = hash * 31 + Arrays.hashCode(graph.getSlotDistances());
+        return hash;
+    }
+
+    public void write(Path file) throws IOException {
+        int n = rank.length;
+        int edges = upTargets.length;
+        long size = HEADER_BYTES
+                + (long) n * Integer.BYTES
+                + (long) (n + 1) * Integer.BYTES
+                + (long) edges * (Integer.BYTES + Double.BYTES + Integer.BYTES);
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(edges).putLong(fingerprint(graph));
+            for (int r : rank) buffer.putInt(r);
+            for (int offset : upOffsets) buffer.putInt(offset);
+            for (int target : upTargets) buffer.putInt(target);
+            for (double weight : upWeights) buffer.putDouble(weight);
+            for (int via : upVia) buffer.putInt(via);
+            buffer.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ContractionHierarchy read(Graph graph, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IllegalStateException("not a contraction hierarchy");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalStateException("hierarchy version " + version + ", expected " + VERSION);
+            }
+            int n = buffer.getInt();
+            int edges = buffer.getInt();
+            if (n != graph.getNodes().size() || buffer.getLong() != fingerprint(graph)) {
+                throw new IllegalStateException("hierarchy was built for a different graph");
+            }
+            long needed = HEADER_BYTES
+                    + (long) n * Integer.BYTES
+                    + ((long) n + 1) * Integer.BYTES
+                    + (long) edges * (Integer.BYTES + Double.BYTES + Integer.BYTES);
+            if (edges < 0 || needed > channel.size()) {
+                throw new IllegalStateException("hierarchy truncated: header needs " + needed + " bytes, file has " + channel.size());
+            }
+            int[] rank = readInts(buffer, n);
+            int[] upOffsets = readInts(buffer, n + 1);
+            int[] upTargets = readInts(buffer, edges);
+            double[] upWeights = new double[edges];
+            buffer.asDoubleBuffer().get(upWeights);
+            buffer.position(buffer.position() + edges * Double.BYTES);
+            int[] upVia = readInts(buffer, edges);
+            return new ContractionHierarchy(graph, rank, upOffsets, upTargets, upWeights, upVia);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    public static void main(String[] args) {
+        Graph graph = GraphSnapshot.loadOrBuild(GraphSnapshot.DEFAULT_PATH);
+        ContractionHierarchy hierarchy = loadOrBuild(graph, GraphSnapshot.DEFAULT_PATH);
+        ContractionHierarchy.Query query = hierarchy.query();
+        ShortestPaths dijkstra = new ShortestPaths(graph);
+        Random random = new Random(0);
+        int n = graph.getNodes().size();
+        int queries = 1000;
+        int[] sources = new int[queries];
+        int[] targets = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            sources[i] = random.nextInt(n);
+            targets[i] = random.nextInt(n);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            dijkstra.query(sources[i], targets[i]);
+        }
+        long dijkstraTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            query.distance(sources[i], targets[i]);
+        }
+        long hierarchyTime = System.nanoTime() - start;
+        System.out.printf("Point-to-point queries: Dijkstra %.1f us, contraction hierarchy %.1f us%n",
+                dijkstraTime / 1000.0 / queries, hierarchyTime / 1000.0 / queries);
+    }
+}
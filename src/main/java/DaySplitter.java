@@ -0,0 +1,124 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Route-first, cluster-second: cuts one covering walk into anchored day loops of at most maxDistance each.
+// A day covering tour positions [i, j) costs home(start of i) + length of [i, j) + home(end of j - 1). Shortest
+// distances obey the triangle inequality, so any sub-interval of a feasible day is feasible too. The earliest
+// feasible start for j therefore never moves backwards, and days(j) = 1 + days(earliest start) is optimal
+// because days() is non-decreasing. That gives an exact minimum day count in one linear two-pointer pass.
+public class DaySplitter {
+    private final AnchorOracle oracle;
+    private final double maxDistance;
+    private final int[] targets;
+    private final int[] mirrors;
+    private final double[] weights;
+    private double[] prefix = new double[0];
+    private int[] days = new int[0];
+    private int[] cut = new int[0];
+
+    public record Day(int from, int to, double distance) {
+    }
+
+    public DaySplitter(Graph graph, AnchorOracle oracle, double maxDistance) {
+        this.oracle = oracle;
+        this.maxDistance = maxDistance;
+        this.targets = graph.getTargets();
+        this.mirrors = graph.getMirrors();
+        this.weights = graph.getSlotDistances();
+    }
+
+    // Minimum number of days for the first length slots of tour, or -1 if some single edge cannot be driven
+    // out and back within maxDistance. Does not allocate once the buffers have grown to the tour length.
+    public int minimumDays(int[] tour, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (prefix.length < length + 1) {
+            prefix = new double[length + 1];
+            days = new int[length + 1];
+            cut = new int[length + 1];
+        }
+        for (int k = 0; k < length; k++) {
+            prefix[k + 1] = prefix[k] + weights[tour[k]];
+        }
+        days[0] = 0;
+        int start = 0;
+        for (int end = 1; end <= length; end++) {
+            double home = oracle.distanceHome(targets[tour[end - 1]]);
+            while (start < end && cost(tour, start, end, home) > maxDistance) {
+                start++;
+            }
+            if (start == end) {
+                return -1;
+            }
+            days[end] = days[start] + 1;
+            cut[end] = start;
+        }
+        return days[length];
+    }
+
+    public List<Day> split(int[] tour) {
+        int count = minimumDays(tour, tour.length);
+        if (count < 0) {
+            throw new IllegalArgumentException("Tour contains an edge that cannot be reached and returned from within "
+                    + maxDistance + " km");
+        }
+        Day[] split = new Day[count];
+        for (int end = tour.length, day = count - 1; end > 0; end = cut[end], day--) {
+            int start = cut[end];
+            split[day] = new Day(start, end, cost(tour, start, end, oracle.distanceHome(targets[tour[end - 1]])));
+        }
+        return Arrays.asList(split);
+    }
+
+    // The full anchored loop for one day: out from the anchor, the tour segment, and back home.
+    public int[] route(int[] tour, Day day) {
+        int[] outbound = new int[targets.length];
+        int outboundLength = oracle.pathHome(owner(tour[day.from()]), outbound);
+        int[] homebound = new int[targets.length];
+        int homeboundLength = oracle.pathHome(targets[tour[day.to() - 1]], homebound);
+        int[] route = new int[outboundLength + (day.to() - day.from()) + homeboundLength];
+        int length = 0;
+        for (int i = outboundLength - 1; i >= 0; i--) {
+            route[length++] = mirrors[outbound[i]];
+        }
+        for (int k = day.from(); k < day.to(); k++) {
+            route[length++] = tour[k];
+        }
+        System.arraycopy(homebound, 0, route, length, homeboundLength);
+        return route;
+    }
+
+    private double cost(int[] tour, int start, int end, double home) {
+        return oracle.distanceHome(owner(tour[start])) + prefix[end] - prefix[start] + home;
+    }
+
+    private int owner(int slot) {
+        return targets[mirrors[slot]];
+    }
+
+    public static void main(String[] args) {
+        Graph graph = GraphSnapshot.loadOrBuild(GraphSnapshot.DEFAULT_PATH);
+        Graph.Node anchor = graph.getNodeById(Tuning.ANCHOR_NODE_ID);
+        if (anchor == null) {
+            anchor = graph.getCentralNode();
+        }
+        AnchorOracle oracle = new AnchorOracle(graph, anchor);
+        ChinesePostman.Tour tour = new ChinesePostman(graph).solve(anchor);
+        DaySplitter splitter = new DaySplitter(graph, oracle, Tuning.MAX_DISTANCE);
+        long start = System.nanoTime();
+        List<Day> days = splitter.split(tour.slots());
+        long splitTime = System.nanoTime() - start;
+        double total = 0;
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < days.size(); i++) {
+            Day day = days.get(i);
+            total += day.distance();
+            lines.add(String.format("Day %d: tour edges %d-%d, %.2f km", i + 1, day.from(), day.to(), day.distance()));
+        }
+        lines.forEach(System.out::println);
+        System.out.printf("Split a %.2f km tour into %d days (%.2f km driven) in %.2f ms%n",
+                tour.distance(), days.size(), total, splitTime / 1_000_000.0);
+    }
+}
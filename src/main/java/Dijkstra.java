@@ -4,70 +4,44 @@ public class Dijkstra {
     private Graph graph;
     private List<Graph.Edge> visitedEdges;
     private GraphVisualiser visualiser;
+    private final ShortestPaths engine;
 
     public Dijkstra(Graph graph, GraphVisualiser visualiser) {
         this.graph = graph;
         this.visitedEdges = new ArrayList<>();
         this.visualiser = visualiser;
+        this.engine = new ShortestPaths(graph);
     }
 
     public List<Graph.Node> dijkstra(Graph.Node x, Graph.Node y) {
         if (visualiser != null) visualiser.clearVisited();
-        Map<Graph.Node, Double> distances = graph.initialiseDistances(x);
-        PriorityQueue<Graph.Node> pq = new PriorityQueue<>(Comparator.comparingDouble(node -> distances.getOrDefault(node, Double.MAX_VALUE)));
-        Map<Graph.Node, Graph.Node> predecessors = new HashMap<>();
-        pq.offer(x);
-        Set<Graph.Edge> edgesToVisit = new HashSet<>(graph.getAllEdges());
-        List<Graph.Node> shortestPath = new ArrayList<>();
-        while (!pq.isEmpty() && !edgesToVisit.isEmpty()) {
-            Graph.Node current = pq.poll();
-            for (Graph.Edge edge : graph.getNeighbours(current)) {
-                visitedEdges.add(edge);
-                if (visualiser != null) {
-                    visualiser.edgeVisited(edge);
-                }
-                double newDistance = distances.get(current) + edge.distance;
-                if (newDistance < distances.getOrDefault(edge.y, Double.MAX_VALUE)) {
-                    distances.put(edge.y, newDistance);
-                    predecessors.put(edge.y, current);
-                    pq.offer(edge.y);
-                }
-            }
-            if (current.equals(y) && shortestPath.isEmpty()) {
-                shortestPath = reconstructPath(predecessors, x, y);
-            }
+        visitedEdges.clear();
+        if (!contains(x) || !contains(y)) {
+            return new ArrayList<>();
         }
+        engine.searchAll(x.index, slot -> {
+            Graph.Edge edge = graph.getSlotEdge(slot);
+            visitedEdges.add(edge);
+            if (visualiser != null) {
+                visualiser.edgeVisited(edge);
+            }
+        });
         if (visualiser != null) {
-            visualisePath(predecessors, x, y);
+            visualisePath(y);
         }
-        return shortestPath;
+        return engine.path(y.index);
     }
 
-    private List<Graph.Node> reconstructPath(Map<Graph.Node, Graph.Node> predecessors, Graph.Node x, Graph.Node y) {
-        List<Graph.Node> path = new LinkedList<>();
-        Graph.Node current = y;
-        while (current != null && !current.equals(x)) {
-            path.add(0, current);
-            current = predecessors.get(current);
-        }
-        if (current != null) {
-            path.add(0, x);
-        }
-        return path;
+    private boolean contains(Graph.Node node) {
+        List<Graph.Node> nodes = graph.getNodes();
+        return node.index >= 0 && node.index < nodes.size() && nodes.get(node.index) == node;
     }
 
-    private void visualisePath(Map<Graph.Node, Graph.Node> predecessors, Graph.Node x, Graph.Node y) {
-        Graph.Node current = y;
-        while (current != null && !current.equals(x)) {
-            Graph.Node predecessor = predecessors.get(current);
-            if (predecessor != null) {
-                for (Graph.Edge edge : graph.getNeighbours(predecessor)) {
-                    if (edge.y.equals(current)) {
-                        visualiser.addPathEdge(edge);
-                    }
-                }
-            }
-            current = predecessor;
+    private void visualisePath(Graph.Node y) {
+        int slot = engine.predecessorSlot(y.index);
+        while (slot >= 0) {
+            visualiser.addPathEdge(graph.getSlotEdge(slot));
+            slot = engine.predecessorSlot(graph.getTargets()[graph.getMirrors()[slot]]);
         }
     }
 
@@ -77,7 +51,7 @@ public class Dijkstra {
 
     public boolean allEdgesVisited() {
         int count = 0;
-        Set<Graph.Edge> allEdges = new HashSet<>(graph.getAllEdges());
+        Set<Graph.Edge> allEdges = graph.getAllEdges();
         for (Graph.Edge edge : allEdges) {
             count++;
         }
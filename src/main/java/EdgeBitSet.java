@@ -0,0 +1,78 @@
+import java.util.Arrays;
+
+public class EdgeBitSet {
+    private final long[] words;
+    private final int size;
+
+    public EdgeBitSet(int size) {
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+    }
+
+    public EdgeBitSet(EdgeBitSet other) {
+        this.size = other.size;
+        this.words = other.words.clone();
+    }
+
+    public void add(int id) {
+        words[id >>> 6] |= 1L << id;
+    }
+
+    public void remove(int id) {
+        words[id >>> 6] &= ~(1L << id);
+    }
+
+    public boolean contains(int id) {
+        return (words[id >>> 6] & (1L << id)) != 0;
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    public void addAll(EdgeBitSet other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public int countNotIn(EdgeBitSet other) {
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            count += Long.bitCount(words[i] & ~other.words[i]);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    public int nextSetBit(int from) {
+        if (from >= size) return -1;
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) return -1;
+            word = words[wordIndex];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -1,5 +1,6 @@
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 
 public class GeneticAlgorithm {
@@ -7,131 +8,337 @@ public class GeneticAlgorithm {
     private GraphVisualiser visualiser;
     private int populationSize;
     private double mutationRate;
-    private List<Path> population;
+    private static final int INITIAL_PATH_CAPACITY = 256;
+    private Path[] population;
+    private Path[] offspring;
     private Random random;
     private int generationCount = 0;
     private Path bestPath;
-    private Set<Graph.Edge> globallyCoveredEdges = new HashSet<>();
+    private EdgeBitSet globallyCoveredEdges;
     private int currentDay = 1;
     private List<Path> dailyPaths = new ArrayList<>();
-    private Map<Graph.Edge, Integer> edgeVisitCount = new HashMap<>();
+    private int[] edgeVisitCount;
+    private final AnchorOracle anchorOracle;
+    private double crossoverRate = Tuning.CROSSOVER_RATE;
+    private List<GeneticAlgorithm> islands = List.of();
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] edgeIds;
+    private final EdgeBitSet visitScratch;
+    private final ThreadLocal<CrossoverIndex> crossoverIndex;
+    private Path[] emigrants;
+    private LocalSearch localSearch;
+    private int[] localSearchPicks;
+    private Random[] breedRandoms;
 
     public GeneticAlgorithm(Graph graph, int populationSize, double mutationRate, GraphVisualiser visualiser) {
+        this(graph, populationSize, mutationRate, visualiser, new Random().nextLong());
+    }
+
+    public GeneticAlgorithm(Graph graph, int populationSize, double mutationRate, GraphVisualiser visualiser, long seed) {
+        this(graph, populationSize, mutationRate, visualiser, seed, 1);
+    }
+
+    // With more than one island, multiDaySolve evolves that many sub-populations side by side. Island i gets
+    // its own seed and a mutation and crossover rate spread around the base settings; every
+    // MIGRATION_INTERVAL generations each island sends its best paths to the next one on a ring.
+    public GeneticAlgorithm(Graph graph, int populationSize, double mutationRate, GraphVisualiser visualiser, long seed,
+                            int islandCount) {
         this.graph = graph;
         this.populationSize = populationSize;
         this.mutationRate = mutationRate;
         this.visualiser = visualiser;
-        this.random = new Random();
-        initializePopulation();
+        this.random = new Random(seed);
+        this.globallyCoveredEdges = new EdgeBitSet(graph.getEdgeCount());
+        this.edgeVisitCount = new int[graph.getEdgeCount()];
+        this.anchorOracle = new AnchorOracle(graph, findAnchor(graph));
+        this.offsets = graph.getOffsets();
+        this.targets = graph.getTargets();
+        this.edgeIds = graph.getEdgeIds();
+        this.visitScratch = new EdgeBitSet(graph.getEdgeCount());
+        this.crossoverIndex = ThreadLocal.withInitial(() -> new CrossoverIndex(graph.getNodes().size()));
+        if (islandCount > 1) {
+            List<GeneticAlgorithm> created = new ArrayList<>(islandCount);
+            for (int i = 0; i < islandCount; i++) {
+                double spread = (double) i / (islandCount - 1);
+                created.add(new GeneticAlgorithm(this, random.nextLong(), mutationRate * (0.5 + 1.5 * spread),
+                        Tuning.CROSSOVER_RATE * (1.1 - 0.3 * spread)));
+            }
+            islands = created;
+        } else {
+            initializePopulation();
+        }
+    }
+
+    // Runs the memetic stage on the fittest children of every generation; islands share the same operator.
+    public void setLocalSearch(LocalSearch localSearch) {
+        this.localSearch = localSearch;
+        for (GeneticAlgorithm island : islands) {
+            island.localSearch = localSearch;
+        }
     }
 
+    private GeneticAlgorithm(GeneticAlgorithm home, long seed, double mutationRate, double crossoverRate) {
+        this.graph = home.graph;
+        this.populationSize = home.populationSize;
+        this.mutationRate = mutationRate;
+        this.crossoverRate = Math.min(1, crossoverRate);
+        this.random = new Random(seed);
+        this.globallyCoveredEdges = home.globallyCoveredEdges;
+        this.edgeVisitCount = new int[graph.getEdgeCount()];
+        this.anchorOracle = home.anchorOracle;
+        this.offsets = home.offsets;
+        this.targets = home.targets;
+        this.edgeIds = home.edgeIds;
+        this.visitScratch = new EdgeBitSet(graph.getEdgeCount());
+        this.crossoverIndex = home.crossoverIndex;
+    }
+
+    // A path is stored as parallel arrays: the node indices it visits and, per step, the id of the edge driven
+    // (-1 where two consecutive nodes are not adjacent). Paths live in a pooled arena and are rewritten in place,
+    // so the arrays only grow and steady-state generations do not allocate.
     public class Path {
-        List<Graph.Node> nodes;
-        Set<Graph.Edge> coveredEdges;
+        int[] nodes;
+        int[] traversedEdges;
+        int length;
+        final EdgeBitSet coveredEdges;
         double fitness;
         double totalDistance;
-        double maxCumulativeDistance;
+        // Coverage multiset: how many times this path drives each edge, with running totals over the distinct
+        // edges so that a mutation only pays for the steps it touches.
+        private final LongIntHashMap traversals;
+        private final LongIntHashMap.EntryConsumer uncover;
+        private int coveredCount;
+        private int newEdges;
+        private long visitSum;
+
+        Path(int capacity) {
+            nodes = new int[Math.max(2, capacity)];
+            traversedEdges = new int[nodes.length];
+            coveredEdges = new EdgeBitSet(graph.getEdgeCount());
+            traversals = new LongIntHashMap(capacity);
+            uncover = (id, count) -> coveredEdges.remove((int) id);
+        }
 
         public Path(List<Graph.Node> nodes) {
-            this.nodes = nodes;
-            calculateCoveredEdges();
+            this(nodes.size());
+            for (Graph.Node node : nodes) {
+                appendNode(node.index);
+            }
+            evaluate();
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > nodes.length) {
+                int grown = Math.max(capacity, nodes.length * 2);
+                nodes = Arrays.copyOf(nodes, grown);
+                traversedEdges = Arrays.copyOf(traversedEdges, grown);
+            }
+        }
+
+        private void appendStep(int node, int edgeId) {
+            ensureCapacity(length + 1);
+            if (length > 0) {
+                traversedEdges[length - 1] = edgeId;
+            }
+            nodes[length++] = node;
+        }
+
+        private void appendNode(int node) {
+            appendStep(node, length > 0 ? edgeBetween(nodes[length - 1], node) : -1);
+        }
+
+        // Rebuilds the coverage multiset and fitness from the genome. Only reads shared state, so paths can be
+        // evaluated concurrently; visits are merged by recordVisits. The genome has already been overwritten, so
+        // the previous bits are found through the old multiset rather than by clearing the graph-sized set.
+        private void evaluate() {
+            traversals.forEach(uncover);
+            traversals.clear();
+            coveredCount = 0;
+            newEdges = 0;
+            visitSum = 0;
+            totalDistance = 0;
+            for (int step = 0; step < length - 1; step++) {
+                addTraversal(traversedEdges[step]);
+            }
             calculateFitness();
-            calculateDistanceMetrics();
-        }
-
-        private void calculateCoveredEdges() {
-            coveredEdges = new HashSet<>();
-            for (int i = 0; i < nodes.size() - 1; i++) {
-                Graph.Node x = nodes.get(i);
-                Graph.Node y = nodes.get(i + 1);
-                Graph.Edge edge = graph.getEdge(x, y);
-                if (edge != null) {
-                    coveredEdges.add(edge);
-                    edge.visited = true;
-                    edgeVisitCountUpdate(edge);
-                    if (visualiser != null) {
-                        visualiser.addPathEdge(edge);
-                    }
+        }
+
+        private void copyFrom(Path other) {
+            ensureCapacity(other.length);
+            System.arraycopy(other.nodes, 0, nodes, 0, other.length);
+            System.arraycopy(other.traversedEdges, 0, traversedEdges, 0, Math.max(0, other.length - 1));
+            length = other.length;
+            evaluate();
+        }
+
+        private Path copy() {
+            Path copy = new Path(length);
+            copy.copyFrom(this);
+            return copy;
+        }
+
+        public List<Graph.Node> getNodes() {
+            List<Graph.Node> all = graph.getNodes();
+            List<Graph.Node> path = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                path.add(all.get(nodes[i]));
+            }
+            return path;
+        }
+
+        private void addTraversal(int id) {
+            if (id < 0) {
+                return;
+            }
+            totalDistance += graph.getEdgeById(id).distance;
+            if (traversals.addTo(id, 1) == 1) {
+                coveredEdges.add(id);
+                coveredCount++;
+                visitSum += edgeVisitCount[id];
+                if (!globallyCoveredEdges.contains(id)) {
+                    newEdges++;
                 }
             }
         }
 
-        private void calculateFitness() {
-            fitness = 0.0;
-            int totalEdges = graph.getAllEdges().size();
-            int newEdges = (int) coveredEdges.stream()
-                    .filter(e -> !globallyCoveredEdges.contains(e))
-                    .count();
-            for (int i = 0; i < newEdges; i++) {
-                fitness += 0.1;
+        private void removeTraversal(int id) {
+            if (id < 0) {
+                return;
             }
-            if (totalDistance > Tuning.MAX_DISTANCE) {
-                fitness *= 0.1;
+            totalDistance -= graph.getEdgeById(id).distance;
+            if (traversals.addTo(id, -1) == 0) {
+                coveredEdges.remove(id);
+                coveredCount--;
+                visitSum -= edgeVisitCount[id];
+                if (!globallyCoveredEdges.contains(id)) {
+                    newEdges--;
+                }
             }
-            double avgEdgeVisits = coveredEdges.stream()
-                    .mapToInt(e -> edgeVisitCount.getOrDefault(e, 0))
-                    .average()
-                    .orElse(0);
-            if (avgEdgeVisits > 5) {
-                fitness *= 0.1;
+        }
+
+        // Delta update after an edit to nodes: steps [from, from + removed) are dropped and the edited nodes now
+        // form steps [from, from + added). Everything outside that window is left untouched.
+        private void replaceSteps(int from, int removed, int added) {
+            int oldSteps = length - 1 - added + removed;
+            for (int step = from; step < from + removed; step++) {
+                removeTraversal(traversedEdges[step]);
             }
-            int uniqueDistance = calculateUniqueDistance();
-            if (uniqueDistance > 0) {
-                fitness += 0.1;
+            if (added != removed) {
+                System.arraycopy(traversedEdges, from + removed, traversedEdges, from + added, oldSteps - from - removed);
             }
-            if (uniqueDistance > 5) {
-                fitness *= 1.5;
+            for (int step = from; step < from + added; step++) {
+                traversedEdges[step] = edgeBetween(nodes[step], nodes[step + 1]);
+                addTraversal(traversedEdges[step]);
             }
-            if (uniqueDistance > 15) {
-                fitness *= 2;
+            calculateFitness();
+        }
+
+        private void insertNode(int position, int node) {
+            ensureCapacity(length + 1);
+            System.arraycopy(nodes, position, nodes, position + 1, length - position);
+            nodes[position] = node;
+            length++;
+            if (position == 0) {
+                replaceSteps(0, 0, 1);
+            } else if (position == length - 1) {
+                replaceSteps(position - 1, 0, 1);
+            } else {
+                replaceSteps(position - 1, 1, 2);
             }
-            fitness = Math.max(0, fitness);
         }
 
-        private int calculateUniqueDistance() {
-            totalDistance = 0;
-            for (Graph.Edge edge : coveredEdges) {
-                totalDistance += edge.distance;
+        private void swapNodes(int i, int j) {
+            if (i == j) {
+                return;
+            }
+            int first = Math.min(i, j);
+            int second = Math.max(i, j);
+            int node = nodes[first];
+            nodes[first] = nodes[second];
+            nodes[second] = node;
+            int steps = length - 1;
+            if (second - first == 1) {
+                int from = Math.max(0, first - 1);
+                replaceSteps(from, Math.min(steps, second + 1) - from, Math.min(steps, second + 1) - from);
+            } else {
+                int from = Math.max(0, first - 1);
+                replaceSteps(from, first + 1 - from, first + 1 - from);
+                int to = Math.min(steps, second + 1);
+                replaceSteps(second - 1, to - second + 1, to - second + 1);
             }
-            return 0;
         }
 
-        private void calculateDistanceMetrics() {
-            totalDistance = 0;
-            maxCumulativeDistance = 0;
-            double cumulativeDistance = 0;
-
-            for (int i = 0; i < nodes.size() - 1; i++) {
-                Graph.Edge edge = graph.getEdge(nodes.get(i), nodes.get(i+1));
-                if (edge != null) {
-                    totalDistance += edge.distance;
-                    cumulativeDistance += edge.distance;
-                    maxCumulativeDistance = Math.max(maxCumulativeDistance, cumulativeDistance);
-                }
+        // Replaces the nodes strictly between positions from and to with the first count entries of insert.
+        void splice(int from, int to, int[] insert, int count) {
+            int removed = to - from - 1;
+            ensureCapacity(length - removed + count);
+            System.arraycopy(nodes, to, nodes, from + 1 + count, length - to);
+            System.arraycopy(insert, 0, nodes, from + 1, count);
+            length += count - removed;
+            replaceSteps(from, removed + 1, count + 1);
+        }
+
+        // Reverses nodes [from, to]. The steps inside the segment drive the same edges backwards, so only the
+        // two boundary steps change.
+        void reverse(int from, int to) {
+            for (int i = from, j = to; i < j; i++, j--) {
+                int node = nodes[i];
+                nodes[i] = nodes[j];
+                nodes[j] = node;
+            }
+            for (int i = from, j = to - 1; i < j; i++, j--) {
+                int edge = traversedEdges[i];
+                traversedEdges[i] = traversedEdges[j];
+                traversedEdges[j] = edge;
+            }
+            replaceSteps(from - 1, 1, 1);
+            replaceSteps(to, 1, 1);
+        }
+
+        int traversals(int edgeId) {
+            return traversals.get(edgeId, 0);
+        }
+
+        // O(1): every term comes from the running totals. Visit counts only change between generations, in
+        // recordVisits, so the cached visit sum is exact for as long as a child is being built and mutated.
+        private void calculateFitness() {
+            fitness = 0.1 * newEdges;
+            if (totalDistance > Tuning.MAX_DISTANCE) {
+                fitness *= 0.1;
             }
+            double avgEdgeVisits = coveredCount == 0 ? 0 : (double) visitSum / coveredCount;
+            if (avgEdgeVisits > 5) {
+                fitness *= 0.1;
+            }
+            fitness = Math.max(0, fitness);
+        }
+
+        // Counts as of the path's last evaluation or edit.
+        private double averageEdgeVisits() {
+            return coveredCount == 0 ? 0 : (double) visitSum / coveredCount;
         }
 
         public String toString() {
             return String.format("Path[Nodes: %d, Edges: %d/%d (%.1f%%), Distance: %.2f]",
-                    nodes.size(),
-                    coveredEdges.size(),
-                    graph.getAllEdges().size(),
+                    length,
+                    coveredEdges.cardinality(),
+                    graph.getEdgeCount(),
                     fitness * 100,
                     totalDistance);
         }
 
         public String getNodeSequence() {
-            return nodes.stream()
+            return getNodes().stream()
                     .map(node -> String.valueOf(node.id))
                     .collect(Collectors.joining(" -> "));
         }
 
         public String getEdgeCoverageReport() {
-            Set<Graph.Edge> allEdges = graph.getAllEdges();
             StringBuilder report = new StringBuilder();
             report.append("Edge Coverage Report:\n");
             report.append(String.format("Covered %d/%d edges\n",
-                    coveredEdges.size(), allEdges.size()));
+                    coveredEdges.cardinality(), graph.getEdgeCount()));
 
 //            report.append("\nMissing edges:\n");
 //            for (Graph.Edge edge : allEdges) {
@@ -144,91 +351,109 @@ public class GeneticAlgorithm {
             return report.toString();
         }
     }
-    private void edgeVisitCountUpdate(Graph.Edge edge) {
-        edgeVisitCount.put(edge, edgeVisitCount.getOrDefault(edge, 0) + 1);
+
+    // Per-thread scratch for crossover: the first position of each node in the second parent, valid where
+    // positionStamp matches the current epoch, and which nodes of the first parent have been seen already.
+    private static class CrossoverIndex {
+        final int[] position;
+        final int[] positionStamp;
+        final int[] seenStamp;
+        int epoch;
+
+        CrossoverIndex(int nodeCount) {
+            position = new int[nodeCount];
+            positionStamp = new int[nodeCount];
+            seenStamp = new int[nodeCount];
+        }
+    }
+
+    private int edgeBetween(int from, int to) {
+        for (int slot = offsets[from]; slot < offsets[from + 1]; slot++) {
+            if (targets[slot] == to) {
+                return edgeIds[slot];
+            }
+        }
+        return -1;
     }
+
+    // Stays sequential: each seed path steers away from the edges the earlier ones already used.
     private void initializePopulation() {
-        population = new ArrayList<>();
-        for (int i = 0; i < populationSize; i++) {
-            population.add(generateRandomPath());
+        if (population == null) {
+            population = new Path[populationSize];
+            offspring = new Path[populationSize];
+            for (int i = 0; i < populationSize; i++) {
+                population[i] = new Path(INITIAL_PATH_CAPACITY);
+                offspring[i] = new Path(INITIAL_PATH_CAPACITY);
+            }
+        }
+        for (Path path : population) {
+            generateRandomPath(path);
+            recordVisits(path);
+        }
+        if (visualiser != null) {
+            visualiser.markEdgesVisited(population[fittestIndex()].coveredEdges);
+        }
+    }
+
+    private void recordVisits(Path... paths) {
+        recordVisits(paths, 0, paths.length);
+    }
+
+    private void recordVisits(Path[] paths, int from, int to) {
+        visitScratch.clear();
+        for (int i = from; i < to; i++) {
+            Path path = paths[i];
+            for (int step = 0; step < path.length - 1; step++) {
+                if (path.traversedEdges[step] >= 0) {
+                    edgeVisitCount[path.traversedEdges[step]]++;
+                }
+            }
+            visitScratch.addAll(path.coveredEdges);
+        }
+        if (visualiser != null) {
+            visualiser.addPathEdges(visitScratch);
         }
     }
 
-    private Path generateRandomPath() {
-        List<Graph.Node> path = new ArrayList<>();
-        path.add(getDailyStartNode(currentDay));
-        Graph.Node current = path.get(0);
+    private void generateRandomPath(Path path) {
+        path.length = 0;
+        Graph.Node current = getDailyStartNode(currentDay);
+        path.appendStep(current.index, -1);
         double currentDistance = 0;
-        double maxCumulativeDistance = 0;
-        Set<Graph.Edge> covered = new HashSet<>();
 
         while (currentDistance < Tuning.MAX_DISTANCE * 0.9) {
             List<Graph.Edge> neighbours = graph.getNeighbours(current);
             if (neighbours.isEmpty()) break;
-            neighbours.sort(Comparator.comparingInt((Graph.Edge e) ->
-                            edgeVisitCount.getOrDefault(e, 0))
-                    .thenComparingDouble(e -> e.distance));
+            // Least visited feasible edge, shorter first on ties; the first one wins an exact tie.
             Graph.Edge nextEdge = null;
-            for (Graph.Edge edge : neighbours) {
-                if (currentDistance + edge.distance <= Tuning.MAX_DISTANCE) {
+            for (int i = 0; i < neighbours.size(); i++) {
+                Graph.Edge edge = neighbours.get(i);
+                if (!anchorOracle.canReturn(edge.y, Tuning.MAX_DISTANCE - currentDistance - edge.distance)) {
+                    continue;
+                }
+                if (nextEdge == null || edgeVisitCount[edge.id] < edgeVisitCount[nextEdge.id]
+                        || (edgeVisitCount[edge.id] == edgeVisitCount[nextEdge.id] && edge.distance < nextEdge.distance)) {
                     nextEdge = edge;
-                    break;
                 }
             }
             if (nextEdge == null) break;
-            path.add(nextEdge.y);
-            covered.add(nextEdge);
+            path.appendStep(nextEdge.y.index, nextEdge.id);
             currentDistance += nextEdge.distance;
             current = nextEdge.y;
-            visualiser.markEdgesVisited(covered);
         }
-        return new Path(path);
-    }
-
-    private List<Graph.Node> findPathTowardStart(Graph.Node from, double maxDistance) {
-        List<Graph.Node> path = new ArrayList<>();
-        Graph.Node current = from;
-        double remaining = maxDistance;
-
-        while (remaining > 0 && !current.equals(getDailyStartNode(currentDay))) {
-            List<Graph.Edge> neighbours = graph.getNeighbours(current);
-            if (neighbours.isEmpty()) {break;}
-            neighbours.sort(Comparator.comparingDouble(
-                    e -> graph.calculateDistance(getDailyStartNode(currentDay), e.y)));
-            Graph.Edge best = neighbours.get(0);
-            if (best.distance > remaining) {break;}
-            path.add(best.y);
-            remaining -= best.distance;
-            current = best.y;
+        for (int slot = anchorOracle.nextHopSlot(current.index); slot >= 0; slot = anchorOracle.nextHopSlot(targets[slot])) {
+            path.appendStep(targets[slot], edgeIds[slot]);
         }
-        return path;
+        path.evaluate();
     }
 
     public void evolve(int generations) {
-        bestPath = getFittest();
+        bestPath = getFittest().copy();
         System.out.println("Initial best: " + bestPath);
         int explorationGens = (int)(generations * 0.2);
 
         for (generationCount = 0; generationCount < generations; generationCount++) {
-            double currentMutationRate = generationCount < explorationGens ? mutationRate * 1.5 : mutationRate;
-            List<Path> newPopulation = new ArrayList<>();
-            newPopulation.add(getFittest());
-
-            while (newPopulation.size() < populationSize) {
-                Path parent1 = selectParent();
-                Path parent2 = selectParent();
-                Path child = crossover(parent1, parent2);
-                if (random.nextDouble() < currentMutationRate) {
-                    mutate(child);
-                }
-                newPopulation.add(child);
-                visualiser.markEdgesVisited(bestPath.coveredEdges);
-            }
-            population = newPopulation;
-            Path currentBest = getFittest();
-            if (currentBest.fitness > bestPath.fitness) {
-                bestPath = new Path(new ArrayList<>(currentBest.nodes));
-            }
+            evolveGeneration(generationCount < explorationGens);
             printGenerationStats();
             if (hasFullCoverage()) {
                 System.out.println("\nFound perfect solution in generation " + generationCount);
@@ -238,127 +463,264 @@ public class GeneticAlgorithm {
         printFinalReport();
     }
 
-    private Path selectParent() {
-        int tournamentSize = Tuning.TOURNAMENT_SIZE;
-        List<Path> candidates = new ArrayList<>();
-        for (int i = 0; i < tournamentSize; i++) {
-            Path candidate = population.get(random.nextInt(populationSize));
-            candidates.add(candidate);
-        }
-        return candidates.stream()
-                .max(Comparator.comparingDouble(p -> {
-                    double avgVisits = p.coveredEdges.stream()
-                            .mapToInt(e -> edgeVisitCount.getOrDefault(e, 0))
-                            .average()
-                            .orElse(0);
-                    double uniqueness = 1.0 / (1.0 + avgVisits);
-                    return p.fitness * (1.0 + uniqueness * 0.5);
-                }))
-                .orElse(candidates.get(0));
-    }
-
-    private Path crossover(Path parent1, Path parent2) {
-        double crossoverProb = Tuning.CROSSOVER_RATE;
-        if (random.nextDouble() > crossoverProb) {
-            return random.nextBoolean() ?
-                    new Path(new ArrayList<>(parent1.nodes)) :
-                    new Path(new ArrayList<>(parent2.nodes));
-        }
-        Set<Graph.Node> commonNodes = new HashSet<>(parent1.nodes);
-        commonNodes.retainAll(new HashSet<>(parent2.nodes));
-        if (commonNodes.isEmpty()) {
-            return random.nextBoolean() ?
-                    new Path(new ArrayList<>(parent1.nodes)) :
-                    new Path(new ArrayList<>(parent2.nodes));
-        }
-        Graph.Node crossoverPoint = commonNodes.stream()
-                .min(Comparator.comparingInt(node ->
-                        Math.abs(parent1.nodes.indexOf(node) - parent2.nodes.indexOf(node))))
-                .orElse(parent1.nodes.get(0));
-        int idx1 = parent1.nodes.indexOf(crossoverPoint);
-        int idx2 = parent2.nodes.indexOf(crossoverPoint);
-        if (idx1 == -1 || idx2 == -1) {
-            return random.nextBoolean() ?
-                    new Path(new ArrayList<>(parent1.nodes)) :
-                    new Path(new ArrayList<>(parent2.nodes));
-        }
-        List<Graph.Node> childNodes = new ArrayList<>();
-        childNodes.addAll(parent1.nodes.subList(0, idx1 + 1));
-        childNodes.addAll(parent2.nodes.subList(idx2 + 1, parent2.nodes.size()));
-        return new Path(childNodes);
-    }
-
-    private void mutate(Path path) {
-        if (random.nextDouble() > Tuning.MUTATION_RATE) {return;}
-        if (random.nextDouble() < 0.7) {
-            List<Graph.Edge> possibleEdges = new ArrayList<>();
-            for (Graph.Node node : path.nodes) {
-                possibleEdges.addAll(graph.getNeighbours(node).stream()
-                        .filter(e -> !path.coveredEdges.contains(e))
-                        .collect(Collectors.toList()));
-            }
-            if (!possibleEdges.isEmpty()) {
-                possibleEdges.sort(Comparator.comparingInt(e ->
-                        edgeVisitCount.getOrDefault(e, 0)));
-
-                Graph.Edge newEdge = possibleEdges.get(0);
-                int insertPos = path.nodes.indexOf(newEdge.x);
-                if (insertPos >= 0 && insertPos < path.nodes.size() - 1) {
-                    path.nodes.add(insertPos + 1, newEdge.y);
+    // One generation without the per-generation report; used by the benchmark module.
+    void evolveOneGeneration() {
+        if (bestPath == null) {
+            bestPath = getFittest().copy();
+        }
+        evolveGeneration(false);
+    }
+
+    // Children are written into the spare half of the arena; afterwards the elite is swapped into slot 0 and
+    // the two halves trade places, so no path is allocated or copied.
+    private void evolveGeneration(boolean exploring) {
+        double currentMutationRate = exploring ? mutationRate * 1.5 : mutationRate;
+        long generationSeed = random.nextLong();
+        Path[] parents = population;
+        Path[] children = offspring;
+        // One generator per child slot, reseeded each generation: deterministic under any thread schedule.
+        if (breedRandoms == null) {
+            breedRandoms = new Random[populationSize];
+            Arrays.setAll(breedRandoms, i -> new Random(0));
+        }
+        IntStream.range(1, populationSize).parallel().forEach(i -> {
+            breedRandoms[i].setSeed(generationSeed + i * 0x9E3779B97F4A7C15L);
+            breed(children[i], breedRandoms[i], currentMutationRate);
+        });
+        if (localSearch != null) {
+            improveFittest(children);
+        }
+        int elite = fittestIndex();
+        Path spare = children[0];
+        children[0] = parents[elite];
+        parents[elite] = spare;
+        recordVisits(children, 1, populationSize);
+        if (visualiser != null) {
+            visualiser.markEdgesVisited(bestPath.coveredEdges);
+        }
+        population = children;
+        offspring = parents;
+        Path currentBest = getFittest();
+        if (currentBest.fitness > bestPath.fitness) {
+            bestPath.copyFrom(currentBest);
+        }
+    }
+
+    // Picks the fittest children (slot 0 is still free for the elite) and improves them in parallel until the
+    // generation's local-search budget runs out.
+    private void improveFittest(Path[] children) {
+        int picks = Math.min(Tuning.LOCAL_SEARCH_ELITES, populationSize - 1);
+        if (localSearchPicks == null) {
+            localSearchPicks = new int[picks];
+        }
+        for (int k = 0; k < picks; k++) {
+            int best = -1;
+            for (int i = 1; i < populationSize; i++) {
+                if (!isPicked(i, k) && (best < 0 || children[i].fitness > children[best].fitness)) {
+                    best = i;
                 }
             }
-        } else {
-            if (path.nodes.size() > 2) {
-                int i = random.nextInt(path.nodes.size() - 1);
-                int j = random.nextInt(path.nodes.size() - 1);
-                Graph.Node nodeI = path.nodes.get(i);
-                Graph.Node nodeJ = path.nodes.get(j);
-                if (graph.areConnected(nodeI, nodeJ)) {
-                    Collections.swap(path.nodes, i, j);
+            localSearchPicks[k] = best;
+        }
+        long deadline = System.nanoTime() + Tuning.LOCAL_SEARCH_MILLIS * 1_000_000;
+        IntStream.range(0, picks).parallel()
+                .forEach(k -> localSearch.improve(children[localSearchPicks[k]], globallyCoveredEdges, deadline));
+    }
+
+    private boolean isPicked(int index, int count) {
+        for (int k = 0; k < count; k++) {
+            if (localSearchPicks[k] == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Path evolveIslands(int generations) {
+        islands.parallelStream().forEach(island -> {
+            Arrays.fill(island.edgeVisitCount, 0);
+            island.initializePopulation();
+            island.bestPath = island.getFittest().copy();
+        });
+        int explorationGens = (int) (generations * 0.2);
+        for (int start = 0; start < generations; start += Tuning.MIGRATION_INTERVAL) {
+            int from = start;
+            int to = Math.min(generations, start + Tuning.MIGRATION_INTERVAL);
+            islands.parallelStream().forEach(island -> {
+                for (int generation = from; generation < to; generation++) {
+                    island.evolveGeneration(generation < explorationGens);
+                }
+            });
+            migrate();
+            System.out.printf("Generations %d-%d, island best fitness: %s%n", from, to - 1, islands.stream()
+                    .map(island -> String.format("%.3f", island.getFittest().fitness))
+                    .collect(Collectors.joining(" ")));
+        }
+        Path best = islands.get(0).getFittest();
+        for (GeneticAlgorithm island : islands) {
+            if (island.getFittest().fitness > best.fitness) {
+                best = island.getFittest();
+            }
+        }
+        return best.copy();
+    }
+
+    // Each island's elites replace the weakest paths of the next island on the ring. Emigrants are copied out
+    // before anyone is replaced, so the outcome does not depend on island order.
+    private void migrate() {
+        for (GeneticAlgorithm island : islands) {
+            int migrants = Math.min(Tuning.MIGRANTS, island.populationSize);
+            if (island.emigrants == null) {
+                island.emigrants = new Path[migrants];
+                for (int k = 0; k < migrants; k++) {
+                    island.emigrants[k] = island.new Path(INITIAL_PATH_CAPACITY);
                 }
             }
+            int[] order = island.rankedIndices(Comparator.comparingDouble((Integer index) -> island.population[index].fitness).reversed());
+            for (int k = 0; k < migrants; k++) {
+                island.emigrants[k].copyFrom(island.population[order[k]]);
+            }
+        }
+        for (int i = 0; i < islands.size(); i++) {
+            GeneticAlgorithm source = islands.get(i);
+            GeneticAlgorithm target = islands.get((i + 1) % islands.size());
+            int[] weakest = target.rankedIndices(Comparator.comparingDouble(index -> target.population[index].fitness));
+            Path[] arrivals = new Path[Math.min(source.emigrants.length, target.populationSize)];
+            for (int k = 0; k < arrivals.length; k++) {
+                arrivals[k] = target.population[weakest[k]];
+                arrivals[k].copyFrom(source.emigrants[k]);
+            }
+            target.recordVisits(arrivals);
         }
-        path.calculateCoveredEdges();
-        path.calculateDistanceMetrics();
-        path.calculateFitness();
     }
 
-    private double calculatePathDistance(List<Graph.Node> nodes) {
-        double distance = 0;
-        for (int i = 0; i < nodes.size() - 1; i++) {
-            Graph.Edge edge = graph.getEdge(nodes.get(i), nodes.get(i+1));
-            if (edge != null) distance += edge.distance;
+    // Population indices sorted by the given order; the sort is stable, so ties keep index order.
+    private int[] rankedIndices(Comparator<Integer> order) {
+        return IntStream.range(0, populationSize).boxed()
+                .sorted(order)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    // Each child gets its own generator derived from the generation seed, so results do not depend on scheduling.
+    private void breed(Path child, Random rng, double currentMutationRate) {
+        Path parent1 = selectParent(rng);
+        Path parent2 = selectParent(rng);
+        crossover(parent1, parent2, child, rng);
+        if (rng.nextDouble() < currentMutationRate) {
+            mutate(child, rng);
         }
-        return distance;
     }
 
-    private void extendPathTowardFarthestPoint(Path path) {
-        if (path.nodes.size() < 2) return;
-        Graph.Node farthest = path.nodes.stream()
-                .max(Comparator.comparingDouble(n ->
-                        graph.calculateDistance(getDailyStartNode(currentDay), n)))
-                .orElse(path.nodes.get(0));
+    private Path selectParent(Random random) {
+        Path best = null;
+        double bestScore = 0;
+        for (int i = 0; i < Tuning.TOURNAMENT_SIZE; i++) {
+            Path candidate = population[random.nextInt(populationSize)];
+            double uniqueness = 1.0 / (1.0 + candidate.averageEdgeVisits());
+            double score = candidate.fitness * (1.0 + uniqueness * 0.5);
+            if (best == null || score > bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
 
-        List<Graph.Edge> neighbours = graph.getNeighbours(farthest);
-        if (!neighbours.isEmpty()) {
-            neighbours.sort((e1, e2) -> Double.compare(
-                    graph.calculateDistance(getDailyStartNode(currentDay), e2.y),
-                    graph.calculateDistance(getDailyStartNode(currentDay), e1.y)));
+    // One-point crossover at the node shared by both parents whose first positions are closest. The second
+    // parent is indexed once, then the first is scanned once, so the whole operator is linear in path length.
+    private void crossover(Path parent1, Path parent2, Path child, Random random) {
+        if (random.nextDouble() > crossoverRate) {
+            child.copyFrom(random.nextBoolean() ? parent1 : parent2);
+            return;
+        }
+        CrossoverIndex index = crossoverIndex.get();
+        int epoch = ++index.epoch;
+        for (int i = parent2.length - 1; i >= 0; i--) {
+            index.position[parent2.nodes[i]] = i;
+            index.positionStamp[parent2.nodes[i]] = epoch;
+        }
+        int idx1 = -1;
+        int idx2 = -1;
+        int bestGap = Integer.MAX_VALUE;
+        for (int i = 0; i < parent1.length; i++) {
+            int node = parent1.nodes[i];
+            if (index.seenStamp[node] == epoch) {
+                continue;
+            }
+            index.seenStamp[node] = epoch;
+            if (index.positionStamp[node] == epoch && Math.abs(i - index.position[node]) < bestGap) {
+                bestGap = Math.abs(i - index.position[node]);
+                idx1 = i;
+                idx2 = index.position[node];
+            }
+        }
+        if (idx1 < 0) {
+            child.copyFrom(random.nextBoolean() ? parent1 : parent2);
+            return;
+        }
+        int tail = parent2.length - idx2 - 1;
+        child.ensureCapacity(idx1 + 1 + tail);
+        System.arraycopy(parent1.nodes, 0, child.nodes, 0, idx1 + 1);
+        System.arraycopy(parent1.traversedEdges, 0, child.traversedEdges, 0, idx1);
+        System.arraycopy(parent2.nodes, idx2 + 1, child.nodes, idx1 + 1, tail);
+        System.arraycopy(parent2.traversedEdges, idx2, child.traversedEdges, idx1, tail);
+        child.length = idx1 + 1 + tail;
+        child.evaluate();
+    }
 
-            Graph.Edge extension = neighbours.get(0);
-            int insertPos = path.nodes.lastIndexOf(farthest) + 1;
-            if (insertPos <= path.nodes.size()) {
-                path.nodes.add(insertPos, extension.y);
+    private void mutate(Path path, Random random) {
+        if (random.nextDouble() > Tuning.MUTATION_RATE) {return;}
+        if (random.nextDouble() < 0.7) {
+            // The least visited edge leaving the path that the path does not already cover; the earliest one
+            // wins a tie, and it is inserted after the first occurrence of its start node.
+            Graph.Edge newEdge = null;
+            int insertPos = -1;
+            for (int i = 0; i < path.length; i++) {
+                List<Graph.Edge> neighbours = graph.getNeighbours(graph.getNodes().get(path.nodes[i]));
+                for (int k = 0; k < neighbours.size(); k++) {
+                    Graph.Edge edge = neighbours.get(k);
+                    if (!path.coveredEdges.contains(edge.id)
+                            && (newEdge == null || edgeVisitCount[edge.id] < edgeVisitCount[newEdge.id])) {
+                        newEdge = edge;
+                        insertPos = i;
+                    }
+                }
+            }
+            if (newEdge != null && insertPos < path.length - 1) {
+                path.insertNode(insertPos + 1, newEdge.y.index);
+            }
+        } else {
+            if (path.length > 2) {
+                int i = random.nextInt(path.length - 1);
+                int j = random.nextInt(path.length - 1);
+                if (edgeBetween(path.nodes[i], path.nodes[j]) >= 0) {
+                    path.swapNodes(i, j);
+                }
             }
         }
     }
 
     public Path getFittest() {
-        return Collections.max(population, Comparator.comparingDouble(p -> p.fitness));
+        // Island mode skips the unused home population; build it only if a caller drives this instance directly.
+        if (population == null) {
+            initializePopulation();
+        }
+        return population[fittestIndex()];
+    }
+
+    private int fittestIndex() {
+        int best = 0;
+        for (int i = 1; i < populationSize; i++) {
+            if (population[i].fitness > population[best].fitness) {
+                best = i;
+            }
+        }
+        return best;
     }
 
     public boolean hasFullCoverage() {
-        return globallyCoveredEdges.size() >= graph.getAllEdges().size();
+        return globallyCoveredEdges.cardinality() >= graph.getEdgeCount();
     }
 
     private void printGenerationStats() {
@@ -374,14 +736,14 @@ public class GeneticAlgorithm {
         if (generationCount == Tuning.MAX_GENERATIONS) {
             System.out.println("\nCurrent best path details:");
             System.out.println("  Node sequence: " +
-                    currentBest.nodes.stream()
+                    currentBest.getNodes().stream()
                             .limit(10)
                             .map(n -> String.valueOf(n.id))
                             .collect(Collectors.joining(" -> ")) +
-                    (currentBest.nodes.size() > 10 ? " -> ..." : ""));
+                    (currentBest.length > 10 ? " -> ..." : ""));
 
             System.out.println("  Coverage details:");
-            System.out.println("    Unique edges covered: " + currentBest.coveredEdges.size());
+            System.out.println("    Unique edges covered: " + currentBest.coveredEdges.cardinality());
             System.out.println("    Total distance: " + currentBest.totalDistance);
         }
     }
@@ -392,13 +754,13 @@ public class GeneticAlgorithm {
         System.out.println(bestPath);
 
         System.out.println("\nPath details:");
-        System.out.println("  Total nodes: " + bestPath.nodes.size());
-        System.out.println("  Total edges traversed: " + (bestPath.nodes.size() - 1));
-        System.out.println("  Unique edges covered: " + bestPath.coveredEdges.size());
+        System.out.println("  Total nodes: " + bestPath.length);
+        System.out.println("  Total edges traversed: " + (bestPath.length - 1));
+        System.out.println("  Unique edges covered: " + bestPath.coveredEdges.cardinality());
         System.out.println("  Total distance: " + bestPath.totalDistance);
 
         System.out.println("\nFirst 20 nodes in path:");
-        System.out.println(bestPath.nodes.stream()
+        System.out.println(bestPath.getNodes().stream()
                 .limit(20)
                 .map(n -> String.valueOf(n.id))
                 .collect(Collectors.joining(" -> ")));
@@ -407,14 +769,14 @@ public class GeneticAlgorithm {
     }
 
     private double calculateAverageFitness() {
-        return population.stream()
+        return Arrays.stream(population)
                 .mapToDouble(p -> p.fitness)
                 .average()
                 .orElse(0);
     }
 
     private double getWorstFitness() {
-        return population.stream()
+        return Arrays.stream(population)
                 .mapToDouble(p -> p.fitness)
                 .min()
                 .orElse(0);
@@ -423,14 +785,23 @@ public class GeneticAlgorithm {
     public void multiDaySolve(int maxDays) {
         while (currentDay <= maxDays && !hasFullCoverage()) {
             System.out.println("\n=== DAY " + currentDay + " ===");
-            edgeVisitCount.clear();
-            initializePopulation();
-            evolve(Tuning.MAX_GENERATIONS);
-            Path bestDailyPath = getFittest();
+            Path bestDailyPath;
+            if (islands.isEmpty()) {
+                Arrays.fill(edgeVisitCount, 0);
+                initializePopulation();
+                evolve(Tuning.MAX_GENERATIONS);
+                bestDailyPath = getFittest().copy();
+            } else {
+                bestDailyPath = evolveIslands(Tuning.MAX_GENERATIONS);
+            }
             dailyPaths.add(bestDailyPath);
             globallyCoveredEdges.addAll(bestDailyPath.coveredEdges);
             visualiser.markEdgesVisited(globallyCoveredEdges);
-            visualiser.updateCurrentPath(getFittest().nodes);
+            visualiser.updateCurrentPath(bestDailyPath.getNodes());
+            if (localSearch != null) {
+                localSearch.printReport();
+                localSearch.resetStats();
+            }
             currentDay++;
         }
         printFinalMultiDayReport();
@@ -440,21 +811,30 @@ public class GeneticAlgorithm {
         System.out.println("\n=== MULTI-DAY SOLUTION ===");
         System.out.printf("Completed in %d days\n", currentDay - 1);
         System.out.printf("Total edges covered: %d/%d (%.1f%%)\n",
-                globallyCoveredEdges.size(),
-                graph.getAllEdges().size(),
-                (double) globallyCoveredEdges.size() / graph.getAllEdges().size() * 100);
+                globallyCoveredEdges.cardinality(),
+                graph.getEdgeCount(),
+                (double) globallyCoveredEdges.cardinality() / graph.getEdgeCount() * 100);
 
         System.out.println("\nDaily breakdown:");
         for (int i = 0; i < dailyPaths.size(); i++) {
             Path dayPath = dailyPaths.get(i);
             System.out.printf("Day %d: %d edges, %.2f km\n",
                     i + 1,
-                    dayPath.coveredEdges.size(),
+                    dayPath.coveredEdges.cardinality(),
                     dayPath.totalDistance);
         }
     }
 
     private Graph.Node getDailyStartNode(int day) {
-        return graph.getNodeById(65296337);
+        return anchorOracle.getAnchor();
+    }
+
+    private static Graph.Node findAnchor(Graph graph) {
+        Graph.Node anchor = graph.getNodeById(Tuning.ANCHOR_NODE_ID);
+        if (anchor == null) {
+            anchor = graph.getCentralNode();
+            System.out.println("Anchor node " + Tuning.ANCHOR_NODE_ID + " is not in this graph, starting from central node " + anchor.id);
+        }
+        return anchor;
     }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+import java.util.List;
+
+public final class Geo {
+    public static final double EARTH_RADIUS_KM = 6371;
+    private static final double RADIANS = Math.PI / 180;
+
+    private Geo() {
+    }
+
+    public static double haversine(Graph.Node node1, Graph.Node node2) {
+        double lat1 = node1.lat * RADIANS;
+        double lat2 = node2.lat * RADIANS;
+        return haversine(lat1, node1.lon * RADIANS, Math.cos(lat1), lat2, node2.lon * RADIANS, Math.cos(lat2));
+    }
+
+    // Inputs in radians; cos(lat) is passed in so callers with a Coordinates buffer only pay for two sines and an asin.
+    public static double haversine(double lat1, double lon1, double cosLat1, double lat2, double lon2, double cosLat2) {
+        double sinLat = Math.sin((lat2 - lat1) * 0.5);
+        double sinLon = Math.sin((lon2 - lon1) * 0.5);
+        double a = sinLat * sinLat + cosLat1 * cosLat2 * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, a)));
+    }
+
+    // Flat-earth approximation around the mean latitude. Only good for ranking nearby points, not for route lengths.
+    public static double equirectangular(Graph.Node node1, Graph.Node node2) {
+        return equirectangular(node1.lat, node1.lon, node2.lat, node2.lon);
+    }
+
+    // Inputs in degrees.
+    public static double equirectangular(double lat1, double lon1, double lat2, double lon2) {
+        double x = (lon2 - lon1) * RADIANS * Math.cos((lat1 + lat2) * 0.5 * RADIANS);
+        double y = (lat2 - lat1) * RADIANS;
+        return EARTH_RADIUS_KM * Math.sqrt(x * x + y * y);
+    }
+
+    public static void haversine(double[] lat1, double[] lon1, double[] cosLat1,
+                                 double[] lat2, double[] lon2, double[] cosLat2, double[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            double sinLat = Math.sin((lat2[i] - lat1[i]) * 0.5);
+            double sinLon = Math.sin((lon2[i] - lon1[i]) * 0.5);
+            double a = sinLat * sinLat + cosLat1[i] * cosLat2[i] * sinLon * sinLon;
+            out[i] = 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, a)));
+        }
+    }
+
+    public static final class Coordinates {
+        private final double[] lat;
+        private final double[] lon;
+        private final double[] cosLat;
+
+        public Coordinates(List<Graph.Node> nodes) {
+            int n = nodes.size();
+            lat = new double[n];
+            lon = new double[n];
+            cosLat = new double[n];
+            for (int i = 0; i < n; i++) {
+                Graph.Node node = nodes.get(i);
+                lat[i] = node.lat * RADIANS;
+                lon[i] = node.lon * RADIANS;
+            }
+            for (int i = 0; i < n; i++) {
+                cosLat[i] = Math.cos(lat[i]);
+            }
+        }
+
+        public int size() {
+            return lat.length;
+        }
+
+        public double distance(int a, int b) {
+            return haversine(lat[a], lon[a], cosLat[a], lat[b], lon[b], cosLat[b]);
+        }
+
+        // Gathers the endpoints into contiguous blocks so the inner kernel runs over plain sequential arrays.
+        public void distances(int[] from, int[] to, double[] out) {
+            int block = Math.min(from.length, 1024);
+            double[] lat1 = new double[block];
+            double[] lon1 = new double[block];
+            double[] cos1 = new double[block];
+            double[] lat2 = new double[block];
+            double[] lon2 = new double[block];
+            double[] cos2 = new double[block];
+            double[] result = new double[block];
+            for (int start = 0; start < from.length; start += block) {
+                int count = Math.min(block, from.length - start);
+                for (int i = 0; i < count; i++) {
+                    int a = from[start + i];
+                    int b = to[start + i];
+                    lat1[i] = lat[a];
+                    lon1[i] = lon[a];
+                    cos1[i] = cosLat[a];
+                    lat2[i] = lat[b];
+                    lon2[i] = lon[b];
+                    cos2[i] = cosLat[b];
+                }
+                haversine(lat1, lon1, cos1, lat2, lon2, cos2, result, count);
+                System.arraycopy(result, 0, out, start, count);
+            }
+        }
+    }
+}
@@ -6,6 +6,14 @@ public class Graph {
     private final List<Edge> edges;
     private List<List<Edge>> adjacencyList;
     private Preprocessor preprocessor;
+    private int[] offsets;
+    private int[] targets;
+    private double[] distances;
+    private int[] mirrors;
+    private int[] edgeIds;
+    private Edge[] slotEdges;
+    private volatile Set<Edge> allEdges;
+    private volatile LongIntHashMap nodeIndexById;
 
     public Graph(Overpasser overpasser, Preprocessor preprocessor) {
         this.nodes = new ArrayList<>();
@@ -14,11 +22,58 @@ public class Graph {
         createGraph(overpasser, preprocessor);
     }
 
+    Graph(List<Node> nodes, int[] offsets, int[] targets, double[] distances, int[] mirrors, String[] edgeNames) {
+        this.nodes = nodes;
+        this.edges = new ArrayList<>();
+        this.offsets = offsets;
+        this.targets = targets;
+        this.distances = distances;
+        this.mirrors = mirrors;
+        this.slotEdges = new Edge[targets.length];
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.get(i).index = i;
+        }
+        for (int u = 0; u < nodes.size(); u++) {
+            for (int slot = offsets[u]; slot < offsets[u + 1]; slot++) {
+                Edge edge = new Edge(nodes.get(u), nodes.get(targets[slot]), distances[slot]);
+                edge.index = slot;
+                slotEdges[slot] = edge;
+            }
+        }
+        assignEdgeIds();
+        for (int slot = 0; slot < slotEdges.length; slot++) {
+            slotEdges[slot].name = edgeNames[edgeIds[slot]];
+        }
+        buildAdjacencyViews();
+    }
+
+    // Raw edge-array construction for generated graphs: segment k joins nodes from[k] and to[k] (indices into
+    // nodes) with the given length. Builds the CSR index and prunes to the 2-core like a downloaded graph.
+    public static Graph fromSegments(List<Node> nodes, int[] from, int[] to, double[] distances, String[] names) {
+        Graph graph = new Graph(nodes);
+        long phaseStart = System.nanoTime();
+        graph.buildCsr(from, to, distances, names);
+        long csrTime = System.nanoTime() - phaseStart;
+        phaseStart = System.nanoTime();
+        graph.compute2Core();
+        long coreTime = System.nanoTime() - phaseStart;
+        System.out.printf("Graph build (%d nodes, %d segments): CSR %d ms, 2-core %d ms, %d nodes and %d edges kept%n",
+                nodes.size(), from.length, csrTime / 1_000_000, coreTime / 1_000_000,
+                graph.getNodes().size(), graph.getEdgeCount());
+        return graph;
+    }
+
+    private Graph(List<Node> nodes) {
+        this.nodes = nodes;
+        this.edges = new ArrayList<>();
+    }
+
     public static class Node {
         double lat;
         double lon;
         long id;
         boolean Intermediary;
+        int index = -1;
 
         Node (double lat, double lon, long id, boolean Intermediary) {
             this.lat = lat;
@@ -38,10 +93,10 @@ public class Graph {
     public static class Way {
         String name;
         long id;
-        List<Long> nodes;
+        LongList nodes;
         Map<String, String> tags;
 
-        Way (String name, long id, List<Long> nodes, Map<String, String> tags) {
+        Way (String name, long id, LongList nodes, Map<String, String> tags) {
             this.name = name;
             this.id = id;
             this.nodes = nodes;
@@ -78,6 +133,9 @@ public class Graph {
         Node y;
         double distance;
         boolean visited;
+        int index = -1;
+        int id = -1;
+        String name;
 
         Edge (Node x, Node y, double distance) {
             this.x = x;
@@ -85,113 +143,227 @@ public class Graph {
             this.distance = distance;
             this.visited = false;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Edge other) || id < 0) return false;
+            return id == other.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id < 0 ? System.identityHashCode(this) : id;
+        }
     }
 
     private void createGraph(Overpasser overpasser, Preprocessor preprocessor) {
+        long phaseStart = System.nanoTime();
         List<processedWay> processedWays = preprocessor.getBiggestComponent();
-        Map<Long, Node> nodeMap = new HashMap<>();
+        long preprocessTime = System.nanoTime() - phaseStart;
+
+        phaseStart = System.nanoTime();
+        LongIntHashMap nodeIdToIndex = new LongIntHashMap(processedWays.size());
+        nodes = new ArrayList<>();
+        int segmentCount = 0;
         for (processedWay way : processedWays) {
             for (Node node : way.nodes) {
-                nodeMap.putIfAbsent(node.id, node);
+                if (nodeIdToIndex.putIfAbsent(node.id, nodes.size())) {
+                    nodes.add(node);
+                }
             }
+            segmentCount += Math.max(0, way.nodes.size() - 1);
         }
-        nodes = new ArrayList<>(nodeMap.values());
-        adjacencyList = new ArrayList<>();
-        for (int i = 0; i < nodes.size(); i++) {
-            adjacencyList.add(new ArrayList<>());
-        }
+        int[] from = new int[segmentCount];
+        int[] to = new int[segmentCount];
+        double[] segmentDistances = new double[segmentCount];
+        String[] segmentNames = new String[segmentCount];
+        int segment = 0;
         for (processedWay way : processedWays) {
             List<Node> wayNodes = way.nodes;
             for (int i = 0; i < wayNodes.size() - 1; i++) {
-                Node x = wayNodes.get(i);
-                Node y = wayNodes.get(i + 1);
-                double distance = preprocessor.calculateDistance(x, y);
-
-                int xIndex = nodes.indexOf(x);
-                int yIndex = nodes.indexOf(y);
-
-                if (xIndex >= 0 && yIndex >= 0) {
-                    Edge forwardEdge = new Edge(x, y, distance);
-                    Edge backwardEdge = new Edge(y, x, distance);
-
-                    adjacencyList.get(xIndex).add(forwardEdge);
-                    adjacencyList.get(yIndex).add(backwardEdge);
-
-                    edges.add(forwardEdge);
-                }
+                from[segment] = nodeIdToIndex.get(wayNodes.get(i).id, -1);
+                to[segment] = nodeIdToIndex.get(wayNodes.get(i + 1).id, -1);
+                segmentNames[segment] = way.name;
+                segment++;
             }
         }
+        new Geo.Coordinates(nodes).distances(from, to, segmentDistances);
+        long indexTime = System.nanoTime() - phaseStart;
+
+        phaseStart = System.nanoTime();
+        buildCsr(from, to, segmentDistances, segmentNames);
+        long csrTime = System.nanoTime() - phaseStart;
         System.out.println("Nodes after construction: " + getNodes().size());
+
+        phaseStart = System.nanoTime();
         compute2Core();
+        long coreTime = System.nanoTime() - phaseStart;
         System.out.println("Nodes after 2-core: " + getNodes().size());
         System.out.println("Graph is connected: " + isFullyConnected());
+        System.out.printf("Graph build (%d ways, %d segments): preprocess %d ms, index %d ms, CSR %d ms, 2-core %d ms%n",
+                processedWays.size(), segmentCount,
+                preprocessTime / 1_000_000, indexTime / 1_000_000, csrTime / 1_000_000, coreTime / 1_000_000);
     }
 
     public void compute2Core() {
-        Queue<Integer> degreeOneNodes = new LinkedList<>();
-        int[] degree = new int[nodes.size()];
-
-        for (int i = 0; i < nodes.size(); i++) {
-            degree[i] = adjacencyList.get(i).size();
+        int n = nodes.size();
+        int[] degree = new int[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+
+        for (int i = 0; i < n; i++) {
+            degree[i] = offsets[i + 1] - offsets[i];
             if (degree[i] < 2) {
-                degreeOneNodes.add(i);
+                queue[tail++] = i;
             }
         }
 
-        while (!degreeOneNodes.isEmpty()) {
-            int nodeIndex = degreeOneNodes.poll();
+        while (head < tail) {
+            int nodeIndex = queue[head++];
             if (degree[nodeIndex] == 0) {continue;}
-            for (Edge edge : adjacencyList.get(nodeIndex)) {
-                int neighborIndex = nodes.indexOf(edge.y);
-                if (neighborIndex == 0) {continue;}
-                edge.visited = true;
-                Edge mirrorEdge = findMirrorEdge(edge);
-                if (mirrorEdge != null) {
-                    mirrorEdge.visited = true;
-                }
+            for (int slot = offsets[nodeIndex]; slot < offsets[nodeIndex + 1]; slot++) {
+                int neighborIndex = targets[slot];
+                slotEdges[slot].visited = true;
+                slotEdges[mirrors[slot]].visited = true;
                 if (--degree[neighborIndex] == 1) {
-                    degreeOneNodes.add(neighborIndex);
+                    queue[tail++] = neighborIndex;
                 }
             }
             degree[nodeIndex] = 0;
         }
 
+        nodeIndexById = null;
+        int[] newIndex = new int[n];
+        int[] newSlot = new int[offsets[n]];
         List<Node> newNodes = new ArrayList<>();
-        List<List<Edge>> newAdjacencyList = new ArrayList<>();
-        Map<Integer, Integer> oldToNewIndex = new HashMap<>();
-
-        for (int i = 0; i < nodes.size(); i++) {
+        for (int i = 0; i < n; i++) {
             if (degree[i] >= 2) {
-                oldToNewIndex.put(i, newNodes.size());
+                newIndex[i] = newNodes.size();
                 newNodes.add(nodes.get(i));
-                newAdjacencyList.add(new ArrayList<>());
+            } else {
+                newIndex[i] = -1;
+                nodes.get(i).index = -1;
             }
         }
 
-        for (int i = 0; i < nodes.size(); i++) {
-            if (degree[i] >= 2) {
-                int newIndex = oldToNewIndex.get(i);
-                for (Edge edge : adjacencyList.get(i)) {
-                    int neighborOldIndex = nodes.indexOf(edge.y);
-                    if (degree[neighborOldIndex] >= 2) {
-                        newAdjacencyList.get(newIndex).add(edge);
-                    }
-                }
+        int[] newOffsets = new int[newNodes.size() + 1];
+        int keptSlots = 0;
+        for (int i = 0; i < n; i++) {
+            if (newIndex[i] < 0) {continue;}
+            for (int slot = offsets[i]; slot < offsets[i + 1]; slot++) {
+                newSlot[slot] = newIndex[targets[slot]] >= 0 ? keptSlots++ : -1;
+            }
+            newOffsets[newIndex[i] + 1] = keptSlots;
+        }
+
+        int[] newTargets = new int[keptSlots];
+        double[] newDistances = new double[keptSlots];
+        int[] newMirrors = new int[keptSlots];
+        Edge[] newSlotEdges = new Edge[keptSlots];
+        for (int i = 0; i < n; i++) {
+            if (newIndex[i] < 0) {continue;}
+            for (int slot = offsets[i]; slot < offsets[i + 1]; slot++) {
+                int kept = newSlot[slot];
+                if (kept < 0) {continue;}
+                newTargets[kept] = newIndex[targets[slot]];
+                newDistances[kept] = distances[slot];
+                newMirrors[kept] = newSlot[mirrors[slot]];
+                newSlotEdges[kept] = slotEdges[slot];
+                newSlotEdges[kept].index = kept;
             }
         }
 
         this.nodes = newNodes;
-        this.adjacencyList = newAdjacencyList;
+        this.offsets = newOffsets;
+        this.targets = newTargets;
+        this.distances = newDistances;
+        this.mirrors = newMirrors;
+        this.slotEdges = newSlotEdges;
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.get(i).index = i;
+        }
+        assignEdgeIds();
+        buildAdjacencyViews();
     }
 
-    public Edge findMirrorEdge(Edge edge) {
-        int neighbourIndex = nodes.indexOf(edge.y);
-        for (Edge e : adjacencyList.get(neighbourIndex)) {
-            if (e.y.equals(edge.x)) {
-                return e;
+    private void buildCsr(int[] from, int[] to, double[] segmentDistances, String[] segmentNames) {
+        int n = nodes.size();
+        for (int i = 0; i < n; i++) {
+            nodes.get(i).index = i;
+        }
+        offsets = new int[n + 1];
+        for (int k = 0; k < from.length; k++) {
+            offsets[from[k] + 1]++;
+            offsets[to[k] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int slots = offsets[n];
+        targets = new int[slots];
+        distances = new double[slots];
+        mirrors = new int[slots];
+        slotEdges = new Edge[slots];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int k = 0; k < from.length; k++) {
+            int forwardSlot = next[from[k]]++;
+            int backwardSlot = next[to[k]]++;
+            Edge forwardEdge = new Edge(nodes.get(from[k]), nodes.get(to[k]), segmentDistances[k]);
+            Edge backwardEdge = new Edge(nodes.get(to[k]), nodes.get(from[k]), segmentDistances[k]);
+            forwardEdge.index = forwardSlot;
+            backwardEdge.index = backwardSlot;
+            forwardEdge.name = segmentNames[k];
+            backwardEdge.name = segmentNames[k];
+            targets[forwardSlot] = to[k];
+            targets[backwardSlot] = from[k];
+            distances[forwardSlot] = segmentDistances[k];
+            distances[backwardSlot] = segmentDistances[k];
+            mirrors[forwardSlot] = backwardSlot;
+            mirrors[backwardSlot] = forwardSlot;
+            slotEdges[forwardSlot] = forwardEdge;
+            slotEdges[backwardSlot] = backwardEdge;
+        }
+        assignEdgeIds();
+        buildAdjacencyViews();
+    }
+
+    private void assignEdgeIds() {
+        edgeIds = new int[slotEdges.length];
+        edges.clear();
+        for (int slot = 0; slot < slotEdges.length; slot++) {
+            if (slot < mirrors[slot]) {
+                int id = edges.size();
+                edgeIds[slot] = id;
+                edgeIds[mirrors[slot]] = id;
+                slotEdges[slot].id = id;
+                slotEdges[mirrors[slot]].id = id;
+                edges.add(slotEdges[slot]);
             }
         }
-        return null;
+        allEdges = null;
+    }
+
+    private void buildAdjacencyViews() {
+        List<Edge> slotView = Arrays.asList(slotEdges);
+        adjacencyList = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            adjacencyList.add(Collections.unmodifiableList(slotView.subList(offsets[i], offsets[i + 1])));
+        }
+    }
+
+    private int indexOf(Node node) {
+        int index = node.index;
+        return (index >= 0 && index < nodes.size() && nodes.get(index) == node) ? index : -1;
+    }
+
+    public Edge findMirrorEdge(Edge edge) {
+        int slot = edge.index;
+        if (slot < 0 || slot >= slotEdges.length || slotEdges[slot] != edge || mirrors[slot] < 0) {
+            return null;
+        }
+        return slotEdges[mirrors[slot]];
     }
 
     public List<List<Edge>> getAdjacencyList() {
@@ -202,75 +374,138 @@ public class Graph {
         return nodes;
     }
 
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    public int[] getTargets() {
+        return targets;
+    }
+
+    public double[] getSlotDistances() {
+        return distances;
+    }
+
+    public int[] getMirrors() {
+        return mirrors;
+    }
+
+    public int[] getEdgeIds() {
+        return edgeIds;
+    }
+
     public List<Edge> getNeighbours(Node node) {
-        int index = nodes.indexOf(node);
-        return (index >= 0 && index < adjacencyList.size())
-                ? adjacencyList.get(index)
-                : Collections.emptyList();
+        int index = indexOf(node);
+        return index >= 0 ? adjacencyList.get(index) : Collections.emptyList();
     }
 
     public Node getNodeById(long id) {
+        LongIntHashMap index = nodeIndexById;
+        if (index == null) {
+            index = new LongIntHashMap(nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                index.put(nodes.get(i).id, i);
+            }
+            nodeIndexById = index;
+        }
+        int i = index.get(id, -1);
+        return i >= 0 ? nodes.get(i) : null;
+    }
+
+    // Only the ordering of distances matters here, so the cheap flat-earth approximation is enough.
+    public Node getNearestNode(double lat, double lon) {
+        Node nearest = null;
+        double nearestDistance = Double.POSITIVE_INFINITY;
         for (Node node : nodes) {
-            if (node.id == id) {
-                return node;
+            double distance = Geo.equirectangular(lat, lon, node.lat, node.lon);
+            if (distance < nearestDistance) {
+                nearest = node;
+                nearestDistance = distance;
             }
         }
-        return null;
+        return nearest;
+    }
+
+    // The node closest to the middle of the bounding box; the anchor fallback for graphs without the real anchor.
+    public Node getCentralNode() {
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (Node node : nodes) {
+            minLat = Math.min(minLat, node.lat);
+            maxLat = Math.max(maxLat, node.lat);
+            minLon = Math.min(minLon, node.lon);
+            maxLon = Math.max(maxLon, node.lon);
+        }
+        return getNearestNode((minLat + maxLat) / 2, (minLon + maxLon) / 2);
     }
 
     public Edge getEdge(Node x, Node y) {
-        int index = nodes.indexOf(x);
-        if (index == -1) {
+        int index = indexOf(x);
+        int target = indexOf(y);
+        if (index == -1 || target == -1) {
             return null;
         }
-        return adjacencyList.get(index).stream()
-                .filter(edge -> edge.y.equals(y))
-                .findFirst()
-                .orElse(null);
+        for (int slot = offsets[index]; slot < offsets[index + 1]; slot++) {
+            if (targets[slot] == target) {
+                return slotEdges[slot];
+            }
+        }
+        return null;
     }
+    // Built on first use: at millions of edges the set costs more than the rest of the edge index.
     public Set<Edge> getAllEdges() {
-        Set<Edge> uniqueEdges = new HashSet<>();
-        for (Edge edge : edges) {
-            uniqueEdges.add(edge);
+        Set<Edge> all = allEdges;
+        if (all == null) {
+            all = Collections.unmodifiableSet(new LinkedHashSet<>(edges));
+            allEdges = all;
         }
-        return uniqueEdges;
+        return all;
     }
 
-    public Map<Node, Double> initialiseDistances(Node x) {
-        Map<Node, Double> distances = new HashMap<>();
-        for (Node node : nodes) {
-            distances.put(node, Double.MAX_VALUE);
+    public int getEdgeCount() {
+        return edges.size();
+    }
+
+    public Edge getSlotEdge(int slot) {
+        return slotEdges[slot];
+    }
+
+    public Edge getEdgeById(int id) {
+        return edges.get(id);
+    }
+
+    public List<Edge> getEdges(EdgeBitSet ids) {
+        List<Edge> result = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            result.add(edges.get(id));
         }
-        distances.put(x, 0.0);
-        return distances;
+        return result;
     }
 
     public double getDistance(Node x, Node y) {
-        for (Edge edge : getNeighbours(x)) {
-            if (edge.y.equals(y)) {
-                return edge.distance;
-            }
-        }
-        return Double.MIN_VALUE;
+        Edge edge = getEdge(x, y);
+        return edge != null ? distances[edge.index] : Double.MIN_VALUE;
     }
 
     public boolean isFullyConnected() {
-        if (nodes.isEmpty()) return true;
-        Set<Node> visited = new HashSet<>();
-        Queue<Node> queue = new LinkedList<>();
-        queue.add(nodes.get(0));
-        while (!queue.isEmpty()) {
-            Node node = queue.poll();
-            if (!visited.contains(node)) {
-                visited.add(node);
-                for (Edge edge : getNeighbours(node)) {
-                    if (!visited.contains(edge.y)) {
-                        queue.add(edge.y);
-                    }
+        int n = nodes.size();
+        if (n == 0) return true;
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        visited[0] = true;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int slot = offsets[node]; slot < offsets[node + 1]; slot++) {
+                if (!visited[targets[slot]]) {
+                    visited[targets[slot]] = true;
+                    queue[tail++] = targets[slot];
                 }
             }
         }
-        return visited.size() == nodes.size();
+        return tail == n;
     }
 
     public boolean areConnected(Node x, Node y) {
@@ -282,22 +517,9 @@ public class Graph {
         int index = random.nextInt(nodes.size());
         return nodes.get(index);
     }
-    public double calculateDistance(Graph.Node node1, Graph.Node node2) {
-        double lat1 = node1.lat;
-        double lon1 = node1.lon;
-        double lat2 = node2.lat;
-        double lon2 = node2.lon;
-        int r = 6371;
-        double p = Math.PI / 180;
-        double a = 0.5 - Math.cos((lat2 - lat1) * p) / 2 + Math.cos(lat1 * p) * Math.cos(lat2 * p) * (1 - Math.cos((lon2 - lon1) * p)) / 2;
-        return 2 * r * Math.asin(Math.sqrt(a));
-    }
 
     public static void main(String[] args) {
-        Overpasser overpasser = new Overpasser();
-        overpasser.request(overpasser.query);
-        Preprocessor preprocessor = new Preprocessor(overpasser);
-        Graph graph = new Graph(overpasser, preprocessor);
+        Graph graph = GraphSnapshot.loadOrBuild(GraphSnapshot.DEFAULT_PATH);
         List<List<Edge>> adjacencyList = graph.getAdjacencyList();
         for (List<Edge> edges : adjacencyList) {
             System.out.println(edges);
@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class GraphSnapshot {
+    public static final Path DEFAULT_PATH = Path.of("Datasets", "SanFrancisco.graph");
+    private static final int MAGIC = 0x45535347;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+
+    public static Graph loadOrBuild(Path file) {
+        return loadOrBuild(file, null);
+    }
+
+    public static Graph loadOrBuildFromExtract(Path extract) {
+        return loadOrBuild(snapshotFor(extract), extract);
+    }
+
+    public static Path snapshotFor(Path extract) {
+        return extract.resolveSibling(extract.getFileName() + ".graph");
+    }
+
+    private static Graph loadOrBuild(Path file, Path extract) {
+        if (Files.exists(file)) {
+            try {
+                long start = System.nanoTime();
+                Graph graph = read(file);
+                System.out.printf("Loaded graph snapshot %s in %d ms%n", file, (System.nanoTime() - start) / 1_000_000);
+                return graph;
+            } catch (IOException | RuntimeException e) {
+                // Counts are checked up front; anything a damaged body still trips over means rebuild, not crash.
+                System.err.println("Ignoring unreadable graph snapshot " + file + ": " + e.getMessage());
+            }
+        }
+        Overpasser overpasser = new Overpasser();
+        if (extract != null) {
+            overpasser.load(extract);
+        } else {
+            overpasser.request(overpasser.query);
+        }
+        Preprocessor preprocessor = new Preprocessor(overpasser, true);
+        Graph graph = new Graph(overpasser, preprocessor);
+        try {
+            write(graph, file);
+        } catch (IOException e) {
+            System.err.println("Could not write graph snapshot " + file + ": " + e.getMessage());
+        }
+        return graph;
+    }
+
+    public static void write(Graph graph, Path file) throws IOException {
+        List<Graph.Node> nodes = graph.getNodes();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        double[] distances = graph.getSlotDistances();
+        int[] mirrors = graph.getMirrors();
+        int nodeCount = nodes.size();
+        int slotCount = targets.length;
+        int edgeCount = graph.getEdgeCount();
+
+        Map<String, Integer> nameIndex = new LinkedHashMap<>();
+        int[] edgeNames = new int[edgeCount];
+        for (int id = 0; id < edgeCount; id++) {
+            String name = graph.getEdgeById(id).name;
+            edgeNames[id] = name == null ? -1 : nameIndex.computeIfAbsent(name, key -> nameIndex.size());
+        }
+        List<byte[]> encodedNames = new ArrayList<>(nameIndex.size());
+        long nameBytes = 0;
+        for (String name : nameIndex.keySet()) {
+            byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+            encodedNames.add(encoded);
+            nameBytes += Integer.BYTES + encoded.length;
+        }
+
+        long size = HEADER_BYTES
+                + (long) nodeCount * (2 * Double.BYTES + Long.BYTES)
+                + (long) (nodeCount + 1) * Integer.BYTES
+                + (long) slotCount * (Integer.BYTES + Double.BYTES + Integer.BYTES)
+                + (long) edgeCount * Integer.BYTES
+                + nameBytes;
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION)
+                    .putInt(nodeCount).putInt(slotCount).putInt(edgeCount).putInt(encodedNames.size());
+            for (Graph.Node node : nodes) buffer.putDouble(node.lat);
+            for (Graph.Node node : nodes) buffer.putDouble(node.lon);
+            for (Graph.Node node : nodes) buffer.putLong(node.id);
+            for (int offset : offsets) buffer.putInt(offset);
+            for (int target : targets) buffer.putInt(target);
+            for (double distance : distances) buffer.putDouble(distance);
+            for (int mirror : mirrors) buffer.putInt(mirror);
+            for (int name : edgeNames) buffer.putInt(name);
+            for (byte[] encoded : encodedNames) {
+                buffer.putInt(encoded.length);
+                buffer.put(encoded);
+            }
+            buffer.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Graph read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IllegalStateException("not a graph snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalStateException("snapshot version " + version + ", expected " + VERSION);
+            }
+            int nodeCount = buffer.getInt();
+            int slotCount = buffer.getInt();
+            int edgeCount = buffer.getInt();
+            int nameCount = buffer.getInt();
+            if (nodeCount < 0 || slotCount < 0 || edgeCount < 0 || nameCount < 0) {
+                throw new IllegalStateException("negative counts in snapshot header");
+            }
+            long needed = HEADER_BYTES
+                    + (long) nodeCount * (2 * Double.BYTES + Long.BYTES)
+                    + ((long) nodeCount + 1) * Integer.BYTES
+                    + (long) slotCount * (Integer.BYTES + Double.BYTES + Integer.BYTES)
+                    + (long) edgeCount * Integer.BYTES
+                    + (long) nameCount * Integer.BYTES;
+            if (needed > channel.size()) {
+                throw new IllegalStateException("snapshot truncated: header needs " + needed + " bytes, file has " + channel.size());
+            }
+
+            double[] lats = readDoubles(buffer, nodeCount);
+            double[] lons = readDoubles(buffer, nodeCount);
+            long[] ids = new long[nodeCount];
+            buffer.asLongBuffer().get(ids);
+            buffer.position(buffer.position() + nodeCount * Long.BYTES);
+            int[] offsets = readInts(buffer, nodeCount + 1);
+            int[] targets = readInts(buffer, slotCount);
+            double[] distances = readDoubles(buffer, slotCount);
+            int[] mirrors = readInts(buffer, slotCount);
+            int[] edgeNames = readInts(buffer, edgeCount);
+            String[] names = new String[nameCount];
+            for (int i = 0; i < nameCount; i++) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IllegalStateException("snapshot truncated in street names");
+                }
+                byte[] encoded = new byte[length];
+                buffer.get(encoded);
+                names[i] = new String(encoded, StandardCharsets.UTF_8);
+            }
+
+            List<Graph.Node> nodes = new ArrayList<>(nodeCount);
+            for (int i = 0; i < nodeCount; i++) {
+                nodes.add(new Graph.Node(lats[i], lons[i], ids[i], true));
+            }
+            String[] namesById = new String[edgeCount];
+            for (int id = 0; id < edgeCount; id++) {
+                namesById[id] = edgeNames[id] < 0 ? null : names[edgeNames[id]];
+            }
+            return new Graph(nodes, offsets, targets, distances, mirrors, namesById);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        return values;
+    }
+}
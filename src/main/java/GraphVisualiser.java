@@ -123,6 +123,20 @@ public class GraphVisualiser extends JFrame {
         }
         SwingUtilities.invokeLater(this::repaint);
     }
+    public void markEdgesVisited(EdgeBitSet edges) {
+        List<Graph.Edge> visited = graph.getEdges(edges);
+        synchronized (lock) {
+            visitedEdges.addAll(visited);
+        }
+        SwingUtilities.invokeLater(this::repaint);
+    }
+    public void addPathEdges(EdgeBitSet edges) {
+        List<Graph.Edge> traversed = graph.getEdges(edges);
+        synchronized (lock) {
+            allEdges.addAll(traversed);
+        }
+        SwingUtilities.invokeLater(this::repaint);
+    }
     public void addPathEdge(Graph.Edge edge) {
         synchronized (lock) {
             allEdges.add(edge);
@@ -152,10 +166,7 @@ public class GraphVisualiser extends JFrame {
     }
 
     public static void main(String[] args) {
-        Overpasser overpasser = new Overpasser();
-        overpasser.request(overpasser.query);
-        Preprocessor preprocessor = new Preprocessor(overpasser);
-        Graph graph = new Graph(overpasser, preprocessor);
+        Graph graph = GraphSnapshot.loadOrBuild(GraphSnapshot.DEFAULT_PATH);
         SwingUtilities.invokeLater(() -> {
             GraphVisualiser graphVisualiser = new GraphVisualiser(graph);
             graphVisualiser.setVisible(true);
@@ -0,0 +1,267 @@
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+// Memetic improvement for GA offspring. A path is treated as an anchored loop in which a gap (two consecutive
+// nodes that are not adjacent) costs its exact shortest-path distance, so loop cost is what the day would really
+// drive. Three passes run in order until the deadline: 2-opt segment reversal around gaps, removal of deadhead
+// runs whose edges the path covers elsewhere, and insertion of nearby uncovered edges with exact reconnection.
+// A 2-opt or deadhead move is kept only if it does not lower the path's fitness; an insertion adds driving, so it
+// must strictly raise fitness. Stats accumulate until resetStats, which the caller does after each day's report.
+public class LocalSearch {
+    private static final int TWO_OPT_WINDOW = 64;
+    private static final int DEADHEAD_RUN_LIMIT = 64;
+    private static final int INSERTION_CANDIDATES = 8;
+    private static final int INSERTION_BALL = 256;
+    private static final double EPSILON = 1e-9;
+    private final Graph graph;
+    private final ContractionHierarchy hierarchy;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] edgeIds;
+    private final double[] weights;
+    private final ThreadLocal<Scratch> scratch;
+    private final Stats[] stats = {new Stats("2-opt"), new Stats("deadhead removal"), new Stats("edge insertion")};
+
+    private static class Stats {
+        final String name;
+        final LongAdder moves = new LongAdder();
+        final DoubleAdder kilometres = new DoubleAdder();
+        final DoubleAdder fitness = new DoubleAdder();
+        final LongAdder nanos = new LongAdder();
+
+        Stats(String name) {
+            this.name = name;
+        }
+    }
+
+    private class Scratch {
+        final ContractionHierarchy.Query query = hierarchy.query();
+        final ShortestPaths ball = new ShortestPaths(graph);
+        final int[] candidates = new int[INSERTION_CANDIDATES];
+        final int[] slots = new int[graph.getNodes().size()];
+        final int[] insert = new int[2 * graph.getNodes().size() + 2];
+        final int[] saved = new int[DEADHEAD_RUN_LIMIT + 2];
+        final int[] run = new int[DEADHEAD_RUN_LIMIT];
+    }
+
+    public LocalSearch(Graph graph, ContractionHierarchy hierarchy) {
+        this.graph = graph;
+        this.hierarchy = hierarchy;
+        this.offsets = graph.getOffsets();
+        this.targets = graph.getTargets();
+        this.edgeIds = graph.getEdgeIds();
+        this.weights = graph.getSlotDistances();
+        this.scratch = ThreadLocal.withInitial(Scratch::new);
+    }
+
+    public void improve(GeneticAlgorithm.Path path, EdgeBitSet globallyCovered, long deadline) {
+        Scratch s = scratch.get();
+        long start = System.nanoTime();
+        double fitness = path.fitness;
+        double cost = twoOpt(path, s, deadline);
+        record(stats[0], cost, path.fitness - fitness, start);
+
+        start = System.nanoTime();
+        fitness = path.fitness;
+        cost = removeDeadhead(path, s, deadline);
+        record(stats[1], cost, path.fitness - fitness, start);
+
+        start = System.nanoTime();
+        fitness = path.fitness;
+        cost = insertUncovered(path, globallyCovered, s, deadline);
+        record(stats[2], cost, path.fitness - fitness, start);
+    }
+
+    private void record(Stats stage, double kilometres, double fitness, long start) {
+        stage.kilometres.add(kilometres);
+        stage.fitness.add(fitness);
+        stage.nanos.add(System.nanoTime() - start);
+    }
+
+    public void printReport() {
+        for (Stats stage : stats) {
+            System.out.printf("Local search %s: %d moves, loop %+.2f km, fitness %+.3f, %d ms%n", stage.name,
+                    stage.moves.sum(), stage.kilometres.sum(), stage.fitness.sum(), stage.nanos.sum() / 1_000_000);
+        }
+    }
+
+    public void resetStats() {
+        for (Stats stage : stats) {
+            stage.moves.reset();
+            stage.kilometres.reset();
+            stage.fitness.reset();
+            stage.nanos.reset();
+        }
+    }
+
+    // Reversing nodes [a + 1, b] swaps steps (a, a + 1) and (b, b + 1) for (a, b) and (a + 1, b + 1). Only
+    // reversals that start at a gap are tried, within a window of the following steps. Returns the loop cost change.
+    private double twoOpt(GeneticAlgorithm.Path path, Scratch s, long deadline) {
+        double change = 0;
+        for (int a = 0; a < path.length - 2 && System.nanoTime() < deadline; a++) {
+            if (path.traversedEdges[a] >= 0) {
+                continue;
+            }
+            double removedA = cost(path.nodes[a], path.nodes[a + 1], s);
+            int bestB = -1;
+            double bestGain = EPSILON;
+            for (int b = a + 2; b < path.length - 1 && b <= a + TWO_OPT_WINDOW; b++) {
+                double gain = removedA + stepCost(path, b, s)
+                        - cost(path.nodes[a], path.nodes[b], s) - cost(path.nodes[a + 1], path.nodes[b + 1], s);
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestB = b;
+                }
+            }
+            if (bestB < 0) {
+                continue;
+            }
+            double fitness = path.fitness;
+            path.reverse(a + 1, bestB);
+            if (path.fitness < fitness) {
+                path.reverse(a + 1, bestB);
+            } else {
+                change -= bestGain;
+                stats[0].moves.increment();
+            }
+        }
+        return change;
+    }
+
+    // A deadhead run is a stretch of steps whose edges the path also drives elsewhere, so dropping it loses no
+    // coverage. The longest improving run from each start is replaced by the exact shortest path across it,
+    // or cut out entirely when it returns to where it began.
+    private double removeDeadhead(GeneticAlgorithm.Path path, Scratch s, long deadline) {
+        double change = 0;
+        for (int i = 0; i < path.length - 2 && System.nanoTime() < deadline; i++) {
+            int runLength = 0;
+            double runCost = 0;
+            int bestJ = -1;
+            double bestGain = EPSILON;
+            for (int j = i + 1; j < path.length && j - i <= DEADHEAD_RUN_LIMIT; j++) {
+                int edge = path.traversedEdges[j - 1];
+                if (edge >= 0 && path.traversals(edge) - occurrences(s.run, runLength, edge) < 2) {
+                    break;
+                }
+                s.run[runLength++] = edge;
+                runCost += stepCost(path, j - 1, s);
+                if (j - i < 2) {
+                    continue;
+                }
+                double gain = runCost - cost(path.nodes[i], path.nodes[j], s);
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestJ = j;
+                }
+            }
+            if (bestJ < 0) {
+                continue;
+            }
+            // A run that comes back to its start is cut together with its last node, so no empty step is left.
+            int end = path.nodes[i] == path.nodes[bestJ] && bestJ < path.length - 1 ? bestJ + 1 : bestJ;
+            int savedCount = end - i - 1;
+            System.arraycopy(path.nodes, i + 1, s.saved, 0, savedCount);
+            int count = reconnect(path.nodes[i], path.nodes[bestJ], s.insert, 0, s);
+            double fitness = path.fitness;
+            path.splice(i, end, s.insert, count);
+            if (path.fitness < fitness) {
+                path.splice(i, i + 1 + count, s.saved, savedCount);
+            } else {
+                change -= bestGain;
+                stats[1].moves.increment();
+            }
+        }
+        return change;
+    }
+
+    // For each step u -> v, grows a small Dijkstra ball around u until it has met a few edges that neither this
+    // path nor an earlier day covers, and prices each as the detour u ~> a -> b ~> v. The cheapest detour that
+    // keeps the path within MAX_DISTANCE replaces the step.
+    private double insertUncovered(GeneticAlgorithm.Path path, EdgeBitSet globallyCovered, Scratch s, long deadline) {
+        double change = 0;
+        for (int p = 0; p < path.length - 1 && System.nanoTime() < deadline; p++) {
+            int u = path.nodes[p];
+            int v = path.nodes[p + 1];
+            double stepCost = stepCost(path, p, s);
+            double driven = path.traversedEdges[p] >= 0 ? stepCost : 0;
+            int[] found = {0, 0};
+            s.ball.searchUntil(u, node -> {
+                for (int slot = offsets[node]; slot < offsets[node + 1] && found[1] < INSERTION_CANDIDATES; slot++) {
+                    if (path.traversals(edgeIds[slot]) == 0 && !globallyCovered.contains(edgeIds[slot])) {
+                        s.candidates[found[1]++] = slot;
+                    }
+                }
+                return found[1] == INSERTION_CANDIDATES || ++found[0] == INSERTION_BALL;
+            });
+            int bestSlot = -1;
+            double bestAdded = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < found[1]; k++) {
+                int slot = s.candidates[k];
+                double toA = s.ball.distance(targets[graph.getMirrors()[slot]]);
+                double added = toA + weights[slot] + cost(targets[slot], v, s) - driven;
+                if (added < bestAdded && path.totalDistance + added <= Tuning.MAX_DISTANCE) {
+                    bestAdded = added;
+                    bestSlot = slot;
+                }
+            }
+            if (bestSlot < 0) {
+                continue;
+            }
+            int a = targets[graph.getMirrors()[bestSlot]];
+            int count = 0;
+            if (a != u) {
+                count = reconnect(u, a, s.insert, count, s);
+                s.insert[count++] = a;
+            }
+            s.insert[count++] = targets[bestSlot];
+            count = reconnect(targets[bestSlot], v, s.insert, count, s);
+            double fitness = path.fitness;
+            double before = path.totalDistance;
+            path.splice(p, p + 1, s.insert, count);
+            if (path.fitness <= fitness) {
+                path.splice(p, p + 1 + count, s.insert, 0);
+            } else {
+                change += path.totalDistance - before - stepCost + driven;
+                stats[2].moves.increment();
+                p += count;
+            }
+        }
+        return change;
+    }
+
+    // Appends the interior nodes of the shortest path from -> to to out starting at offset; returns the new length.
+    private int reconnect(int from, int to, int[] out, int offset, Scratch s) {
+        int length = s.query.path(from, to, s.slots);
+        for (int k = 0; k < length - 1; k++) {
+            out[offset++] = targets[s.slots[k]];
+        }
+        return offset;
+    }
+
+    private static int occurrences(int[] values, int count, int value) {
+        int found = 0;
+        for (int k = 0; k < count; k++) {
+            if (values[k] == value) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private double stepCost(GeneticAlgorithm.Path path, int step, Scratch s) {
+        int edge = path.traversedEdges[step];
+        return edge >= 0 ? graph.getEdgeById(edge).distance : cost(path.nodes[step], path.nodes[step + 1], s);
+    }
+
+    private double cost(int from, int to, Scratch s) {
+        if (from == to) {
+            return 0;
+        }
+        for (int slot = offsets[from]; slot < offsets[from + 1]; slot++) {
+            if (targets[slot] == to) {
+                return graph.getEdgeById(edgeIds[slot]).distance;
+            }
+        }
+        return s.query.distance(from, to);
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.Arrays;
+
+public class LongIntHashMap {
+    private static final long FREE_KEY = 0L;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int get(long key, int missingValue) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : missingValue;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == key) return values[slot];
+            if (existing == FREE_KEY) return missingValue;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == key) return true;
+            if (existing == FREE_KEY) return false;
+        }
+    }
+
+    public void put(long key, int value) {
+        int slot = findOrInsert(key);
+        if (slot < 0) {
+            freeKeyValue = value;
+        } else {
+            values[slot] = value;
+        }
+    }
+
+    public boolean putIfAbsent(long key, int value) {
+        int before = size;
+        int slot = findOrInsert(key);
+        if (size == before) {
+            return false;
+        }
+        if (slot < 0) {
+            freeKeyValue = value;
+        } else {
+            values[slot] = value;
+        }
+        return true;
+    }
+
+    public int addTo(long key, int delta) {
+        int slot = findOrInsert(key);
+        if (slot < 0) {
+            return freeKeyValue += delta;
+        }
+        return values[slot] += delta;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Empties the map but keeps its capacity, so a recycled map does not allocate again.
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        size = 0;
+        hasFreeKey = false;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        if (hasFreeKey) {
+            consumer.accept(FREE_KEY, freeKeyValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE_KEY) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    // Returns the slot holding key (inserting it with value 0 if absent), or -1 for the free key.
+    private int findOrInsert(long key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                freeKeyValue = 0;
+                size++;
+            }
+            return -1;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == key) return slot;
+            if (existing == FREE_KEY) {
+                keys[slot] = key;
+                values[slot] = 0;
+                if (++size >= resizeAt) {
+                    rehash(keys.length << 1);
+                    return findOrInsert(key);
+                }
+                return slot;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == FREE_KEY) continue;
+            int slot = slot(key);
+            while (keys[slot] != FREE_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * 0.75);
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    static int capacityFor(int expectedSize) {
+        long needed = Math.max(4L, (long) Math.ceil(expectedSize / 0.75) + 1);
+        return (int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return builder.append('}').toString();
+    }
+}
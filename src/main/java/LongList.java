@@ -0,0 +1,71 @@
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+public class LongList {
+    private long[] elements;
+    private int size;
+
+    public LongList() {
+        this(8);
+    }
+
+    public LongList(int capacity) {
+        elements = new long[Math.max(1, capacity)];
+    }
+
+    public static LongList of(long... values) {
+        LongList list = new LongList(values.length);
+        System.arraycopy(values, 0, list.elements, 0, values.length);
+        list.size = values.length;
+        return list;
+    }
+
+    public void add(long value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length << 1);
+        }
+        elements[size++] = value;
+    }
+
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return elements[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean removeIf(LongPredicate filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(elements[i])) {
+                elements[kept++] = elements[i];
+            }
+        }
+        boolean removed = kept != size;
+        size = kept;
+        return removed;
+    }
+
+    public void trimToSize() {
+        if (elements.length > size) {
+            elements = Arrays.copyOf(elements, Math.max(1, size));
+        }
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.function.LongFunction;
+
+public class LongObjectHashMap<V> {
+    private static final long FREE_KEY = 0L;
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private boolean hasFreeKey;
+    private V freeKeyValue;
+
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(LongIntHashMap.capacityFor(expectedSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : null;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == key) return (V) values[slot];
+            if (existing == FREE_KEY) return null;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == key) return true;
+            if (existing == FREE_KEY) return false;
+        }
+    }
+
+    public void put(long key, V value) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == key) {
+                values[slot] = value;
+                return;
+            }
+            if (existing == FREE_KEY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size >= resizeAt) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+        }
+    }
+
+    public V computeIfAbsent(long key, LongFunction<? extends V> factory) {
+        V value = get(key);
+        if (value == null) {
+            value = factory.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == FREE_KEY) continue;
+            int slot = slot(key);
+            while (keys[slot] != FREE_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * 0.75);
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
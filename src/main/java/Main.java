@@ -1,5 +1,7 @@
 import javax.swing.*;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 public class Main {
@@ -72,14 +74,20 @@ public class Main {
 //        } else {
 //            System.out.println("Start/End node not found in graph");
 //        }
-        Overpasser overpasser = new Overpasser();
-        overpasser.request(overpasser.query);
-        Preprocessor preprocessor = new Preprocessor(overpasser);
-        Graph graph = new Graph(overpasser, preprocessor);
+        // A .graph argument is a snapshot (e.g. from SyntheticGraphs); anything else is an OSM extract.
+        Path input = args.length > 0 ? Path.of(args[0]) : GraphSnapshot.DEFAULT_PATH;
+        boolean snapshot = input.getFileName().toString().endsWith(".graph");
+        Path graphFile = snapshot ? input : GraphSnapshot.snapshotFor(input);
+        Graph graph = snapshot
+                ? GraphSnapshot.loadOrBuild(graphFile)
+                : GraphSnapshot.loadOrBuildFromExtract(input);
+        LocalSearch localSearch = new LocalSearch(graph, ContractionHierarchy.loadOrBuild(graph, graphFile));
         SwingUtilities.invokeLater(() -> {
             GraphVisualiser visualiser = new GraphVisualiser(graph);
             visualiser.setVisible(true);
-            GeneticAlgorithm ga = new GeneticAlgorithm(graph, Tuning.POPULATION_SIZE, Tuning.MUTATION_RATE,visualiser);
+            GeneticAlgorithm ga = new GeneticAlgorithm(graph, Tuning.POPULATION_SIZE, Tuning.MUTATION_RATE, visualiser,
+                    new Random().nextLong(), Runtime.getRuntime().availableProcessors());
+            ga.setLocalSearch(localSearch);
             new Thread(() -> {
                 ga.multiDaySolve(100);
             }).start();
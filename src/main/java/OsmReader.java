@@ -0,0 +1,131 @@
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+public class OsmReader {
+    private final Predicate<Graph.Way> wayFilter;
+    private final List<Graph.Node> nodes = new ArrayList<>();
+    private final List<Graph.Way> ways = new ArrayList<>();
+
+    public OsmReader(Predicate<Graph.Way> wayFilter) {
+        this.wayFilter = wayFilter;
+    }
+
+    public void read(Path file) throws IOException {
+        long start = System.nanoTime();
+        String fileName = file.getFileName().toString();
+        boolean pbf = fileName.endsWith(".pbf");
+        PbfReader pbfReader = pbf ? new PbfReader(file, Runtime.getRuntime().availableProcessors()) : null;
+
+        List<Graph.Way> wayBatch = new ArrayList<>();
+        if (pbf) {
+            pbfReader.readWays(wayFilter, wayBatch);
+        } else {
+            readXmlWays(file, wayBatch);
+        }
+        LongIntHashMap wantedNodeIds = new LongIntHashMap(wayBatch.size() * 8);
+        for (Graph.Way way : wayBatch) {
+            for (int i = 0; i < way.nodes.size(); i++) {
+                wantedNodeIds.put(way.nodes.get(i), 0);
+            }
+        }
+
+        List<Graph.Node> nodeBatch = new ArrayList<>();
+        if (pbf) {
+            pbfReader.readNodes(wantedNodeIds, nodeBatch);
+        } else {
+            readXmlNodes(file, wantedNodeIds, nodeBatch);
+        }
+        if (nodeBatch.size() < wantedNodeIds.size()) {
+            dropMissingNodeRefs(wayBatch, nodeBatch);
+        }
+        nodes.addAll(nodeBatch);
+        ways.addAll(wayBatch);
+        System.out.printf("Read %d nodes and %d ways from %s in %d ms%n",
+                nodeBatch.size(), wayBatch.size(), fileName, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void readXmlWays(Path file, List<Graph.Way> out) throws IOException {
+        try (InputStream in = open(file)) {
+            XMLStreamReader xml = XMLInputFactory.newFactory().createXMLStreamReader(in);
+            Graph.Way current = null;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "way" -> current = new Graph.Way(null, Long.parseLong(xml.getAttributeValue(null, "id")),
+                                new LongList(), new HashMap<>());
+                        case "nd" -> {
+                            if (current != null) current.nodes.add(Long.parseLong(xml.getAttributeValue(null, "ref")));
+                        }
+                        case "tag" -> {
+                            if (current != null) current.tags.put(xml.getAttributeValue(null, "k"), xml.getAttributeValue(null, "v"));
+                        }
+                        default -> {}
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && current != null && "way".equals(xml.getLocalName())) {
+                    current.name = current.tags.get("name");
+                    current.nodes.trimToSize();
+                    if (wayFilter.test(current)) {
+                        out.add(current);
+                    }
+                    current = null;
+                }
+            }
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed OSM XML in " + file, e);
+        }
+    }
+
+    private void readXmlNodes(Path file, LongIntHashMap wanted, List<Graph.Node> out) throws IOException {
+        try (InputStream in = open(file)) {
+            XMLStreamReader xml = XMLInputFactory.newFactory().createXMLStreamReader(in);
+            while (xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && "node".equals(xml.getLocalName())) {
+                    long id = Long.parseLong(xml.getAttributeValue(null, "id"));
+                    if (wanted.containsKey(id)) {
+                        out.add(new Graph.Node(Double.parseDouble(xml.getAttributeValue(null, "lat")),
+                                Double.parseDouble(xml.getAttributeValue(null, "lon")), id));
+                    }
+                }
+            }
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed OSM XML in " + file, e);
+        }
+    }
+
+    private InputStream open(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        return file.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    private void dropMissingNodeRefs(List<Graph.Way> wayBatch, List<Graph.Node> nodeBatch) {
+        LongIntHashMap present = new LongIntHashMap(nodeBatch.size());
+        for (Graph.Node node : nodeBatch) {
+            present.put(node.id, 0);
+        }
+        for (Graph.Way way : wayBatch) {
+            way.nodes.removeIf(id -> !present.containsKey(id));
+        }
+        wayBatch.removeIf(way -> way.nodes.isEmpty());
+    }
+
+    public List<Graph.Node> getNodes() {
+        return nodes;
+    }
+
+    public List<Graph.Way> getWays() {
+        return ways;
+    }
+}
@@ -0,0 +1,188 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class OverpassCache {
+    public static final Path DEFAULT_DIRECTORY = Path.of("Datasets", "overpass-cache");
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(30);
+    public static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024 * 1024;
+    private static final String RESPONSE_SUFFIX = ".json.gz";
+    private static final String METADATA_SUFFIX = ".properties";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Younger uncommitted bodies and temp files may belong to a fetch still in flight, so eviction leaves them alone.
+    private static final Duration STALE_AFTER = Duration.ofHours(1);
+    private final Path directory;
+    private final Duration maxAge;
+    private final long maxBytes;
+
+    public OverpassCache() {
+        this(DEFAULT_DIRECTORY, DEFAULT_MAX_AGE, DEFAULT_MAX_BYTES);
+    }
+
+    public OverpassCache(Path directory, Duration maxAge, long maxBytes) {
+        this.directory = directory;
+        this.maxAge = maxAge;
+        this.maxBytes = maxBytes;
+    }
+
+    // The endpoint is part of the key: the same query against a different server is a different response.
+    public static String key(String endpoint, String query) {
+        String normalized = endpoint + "\n" + query.strip().replaceAll("\\s+", " ");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Reader lookup(String endpoint, String query) throws IOException {
+        String key = key(endpoint, query);
+        Path response = directory.resolve(key + RESPONSE_SUFFIX);
+        Path metadataFile = directory.resolve(key + METADATA_SUFFIX);
+        if (!Files.exists(response) || !Files.exists(metadataFile)) {
+            return null;
+        }
+        Properties metadata = readMetadata(metadataFile);
+        Instant fetchedAt = Instant.ofEpochMilli(Long.parseLong(metadata.getProperty("fetchedAt", "0")));
+        if (fetchedAt.plus(maxAge).isBefore(Instant.now())) {
+            return null;
+        }
+        Files.setLastModifiedTime(response, FileTime.from(Instant.now()));
+        System.out.printf("Serving Overpass query %s from cache (fetched %s, %s nodes, %s ways)%n",
+                key.substring(0, 12), fetchedAt, metadata.getProperty("nodes"), metadata.getProperty("ways"));
+        return open(response);
+    }
+
+    public Reader store(String endpoint, String query, InputStream body) throws IOException {
+        Files.createDirectories(directory);
+        String key = key(endpoint, query);
+        Path response = directory.resolve(key + RESPONSE_SUFFIX);
+        Path temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+            body.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, response, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(directory.resolve(key + METADATA_SUFFIX));
+        return open(response);
+    }
+
+    // Drops a stored body whose response turned out to be unusable, so it is never served.
+    public void discard(String endpoint, String query) throws IOException {
+        String key = key(endpoint, query);
+        Files.deleteIfExists(directory.resolve(key + RESPONSE_SUFFIX));
+        Files.deleteIfExists(directory.resolve(key + METADATA_SUFFIX));
+    }
+
+    public synchronized void recordFetch(String endpoint, String query, Instant fetchedAt, int nodes, int ways) throws IOException {
+        String key = key(endpoint, query);
+        Properties metadata = new Properties();
+        metadata.setProperty("endpoint", endpoint);
+        metadata.setProperty("fetchedAt", Long.toString(fetchedAt.toEpochMilli()));
+        metadata.setProperty("nodes", Integer.toString(nodes));
+        metadata.setProperty("ways", Integer.toString(ways));
+        metadata.setProperty("query", query.strip());
+        try (OutputStream out = Files.newOutputStream(directory.resolve(key + METADATA_SUFFIX))) {
+            metadata.store(out, "Overpass response cache entry");
+        }
+        evict();
+    }
+
+    // Bodies without metadata have been stored but not committed by recordFetch. They are never candidates for
+    // eviction, and are only removed, like temp files from an interrupted store, once they are STALE_AFTER old.
+    public synchronized void evict() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Instant staleBefore = Instant.now().minus(STALE_AFTER);
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(directory, "*" + TEMP_SUFFIX)) {
+            for (Path temp : temps) {
+                if (lastAccess(temp).toInstant().isBefore(staleBefore)) {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+        List<Path> responses = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + RESPONSE_SUFFIX)) {
+            for (Path response : entries) {
+                if (Files.exists(metadataFor(response))) {
+                    responses.add(response);
+                    total += sizeOf(response);
+                } else if (lastAccess(response).toInstant().isBefore(staleBefore)) {
+                    Files.deleteIfExists(response);
+                }
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        responses.sort(Comparator.comparing(OverpassCache::lastAccess));
+        for (Path response : responses) {
+            if (total <= maxBytes) {
+                break;
+            }
+            total -= sizeOf(response);
+            Files.deleteIfExists(response);
+            Files.deleteIfExists(metadataFor(response));
+            String name = response.getFileName().toString();
+            System.out.println("Evicted Overpass cache entry " + name.substring(0, 12));
+        }
+    }
+
+    private static Path metadataFor(Path response) {
+        String name = response.getFileName().toString();
+        return response.resolveSibling(name.substring(0, name.length() - RESPONSE_SUFFIX.length()) + METADATA_SUFFIX);
+    }
+
+    private static long sizeOf(Path response) {
+        try {
+            return Files.size(response);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static FileTime lastAccess(Path response) {
+        try {
+            return Files.getLastModifiedTime(response);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static Properties readMetadata(Path file) throws IOException {
+        Properties metadata = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            metadata.load(in);
+        }
+        return metadata;
+    }
+
+    private static Reader open(Path response) throws IOException {
+        return new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(response), 1 << 16), StandardCharsets.UTF_8));
+    }
+}
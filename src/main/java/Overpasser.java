@@ -1,16 +1,36 @@
-import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import okhttp3.*;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class Overpasser {
     private static final String OVERPASS_API_URL = "https://overpass-api.de/api/interpreter";
     private static final List<String> desiredTags = Arrays.asList("secondary", "primary", "tertiary", "residential", "unclassified", "living_street", "roundabout");
+    static final int MAX_TILE_ATTEMPTS = 4;
+    private static final long TILE_BACKOFF_MILLIS = 2000;
+    // One client for every request and tile, so concurrent tiles share its connection pool.
+    private static final OkHttpClient CLIENT = new OkHttpClient.Builder()
+            .readTimeout(30, TimeUnit.SECONDS)
+            .build();
+    public static final BoundingBox SAN_FRANCISCO = new BoundingBox(37.703, -122.527, 37.833, -122.348);
+    private final String apiUrl;
+    private final OverpassCache cache;
+    private final long tileBackoffMillis;
     List<Graph.Node> nodes = new ArrayList<>();
     List<Graph.Way> ways = new ArrayList<>();
     String query = """
@@ -23,55 +43,246 @@ public class Overpasser {
             out meta;
             """;
 
+    public Overpasser() {
+        this(OVERPASS_API_URL, new OverpassCache());
+    }
+
+    public Overpasser(String apiUrl) {
+        this(apiUrl, new OverpassCache());
+    }
+
+    public Overpasser(String apiUrl, OverpassCache cache) {
+        this(apiUrl, cache, TILE_BACKOFF_MILLIS);
+    }
+
+    // tileBackoffMillis is the first retry delay for a failed tile; it doubles on each further attempt.
+    public Overpasser(String apiUrl, OverpassCache cache, long tileBackoffMillis) {
+        this.apiUrl = apiUrl;
+        this.cache = cache;
+        this.tileBackoffMillis = tileBackoffMillis;
+    }
+
     public void request(String query) {
+        request(query, false);
+    }
+
+    public void request(String query, boolean refresh) {
         try {
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .readTimeout(30, TimeUnit.SECONDS)
-                    .build();
+            Reader cached = (cache != null && !refresh) ? cache.lookup(apiUrl, query) : null;
+            if (cached != null) {
+                try (Reader reader = cached) {
+                    convertJSON(reader);
+                }
+                return;
+            }
             Request request = new Request.Builder()
-                    .url(OVERPASS_API_URL)
+                    .url(apiUrl)
                     .post(RequestBody.create(MediaType.parse("application/x-www-form-urlencoded"), "data=" + URLEncoder.encode(query, StandardCharsets.UTF_8)))
                     .build();
-            try {
-                Response response = client.newCall(request).execute();
-                convertJSON(response.body().string());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+            Instant fetchedAt = Instant.now();
+            try (Response response = CLIENT.newCall(request).execute()) {
+                if (!response.isSuccessful()) {
+                    throw new IOException("Overpass request failed with HTTP " + response.code());
+                }
+                if (cache == null) {
+                    convertJSON(response.body().charStream());
+                    return;
+                }
+                int nodesBefore = nodes.size();
+                int waysBefore = ways.size();
+                try (Reader reader = cache.store(apiUrl, query, response.body().byteStream())) {
+                    convertJSON(reader);
+                } catch (IOException | RuntimeException e) {
+                    cache.discard(apiUrl, query);
+                    throw e;
+                }
+                cache.recordFetch(apiUrl, query, fetchedAt, nodes.size() - nodesBefore, ways.size() - waysBefore);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public record BoundingBox(double south, double west, double north, double east) {
+        public List<BoundingBox> split(double tileDegrees) {
+            List<BoundingBox> tiles = new ArrayList<>();
+            // The epsilon keeps rounding (0.01 / 0.01 = 1.0000000000002) from adding a sliver row or column.
+            int rows = Math.max(1, (int) Math.ceil((north - south) / tileDegrees - 1e-9));
+            int cols = Math.max(1, (int) Math.ceil((east - west) / tileDegrees - 1e-9));
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    tiles.add(new BoundingBox(
+                            south + row * tileDegrees,
+                            west + col * tileDegrees,
+                            row == rows - 1 ? north : south + (row + 1) * tileDegrees,
+                            col == cols - 1 ? east : west + (col + 1) * tileDegrees));
+                }
+            }
+            return tiles;
+        }
+
+        public String query() {
+            return String.format(Locale.ROOT, """
+                    [out:json][timeout:90];
+                    (way["highway"](%.6f,%.6f,%.6f,%.6f);
+                    node(w);
+                    );
+                    out meta;
+                    """, south, west, north, east);
+        }
+    }
+
+    public void requestTiled(BoundingBox area, double tileDegrees, int maxInFlight) {
+        List<BoundingBox> tiles = area.split(tileDegrees);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, maxInFlight));
+        List<Future<Overpasser>> results = new ArrayList<>();
+        for (BoundingBox tile : tiles) {
+            results.add(pool.submit(() -> fetchTile(tile)));
+        }
+        LongIntHashMap seenNodes = new LongIntHashMap(nodes.size());
+        LongIntHashMap seenWays = new LongIntHashMap(ways.size());
+        for (Graph.Node node : nodes) seenNodes.put(node.id, 0);
+        for (Graph.Way way : ways) seenWays.put(way.id, 0);
+        List<String> failures = new ArrayList<>();
+        try {
+            for (int i = 0; i < tiles.size(); i++) {
+                try {
+                    Overpasser tile = results.get(i).get();
+                    for (Graph.Node node : tile.nodes) {
+                        if (seenNodes.putIfAbsent(node.id, 0)) nodes.add(node);
+                    }
+                    for (Graph.Way way : tile.ways) {
+                        if (seenWays.putIfAbsent(way.id, 0)) ways.add(way);
+                    }
+                } catch (ExecutionException e) {
+                    failures.add(tiles.get(i) + ": " + e.getCause().getMessage());
+                }
             }
-        } catch (RuntimeException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
+        } finally {
+            pool.shutdownNow();
+        }
+        if (!failures.isEmpty()) {
+            throw new RuntimeException(failures.size() + " of " + tiles.size() + " tiles failed: " + failures);
+        }
+        System.out.printf("Fetched %d tiles: %d nodes, %d ways after de-duplication%n", tiles.size(), nodes.size(), ways.size());
+    }
+
+    private Overpasser fetchTile(BoundingBox tile) throws InterruptedException {
+        String tileQuery = tile.query();
+        for (int attempt = 1; ; attempt++) {
+            Overpasser part = new Overpasser(apiUrl, cache, tileBackoffMillis);
+            try {
+                // Retries must reach the server; a cached copy is what the previous attempt already had.
+                part.request(tileQuery, attempt > 1);
+                return part;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_TILE_ATTEMPTS) {
+                    throw e;
+                }
+                long delay = tileBackoffMillis * (1L << (attempt - 1)) + ThreadLocalRandom.current().nextLong(tileBackoffMillis + 1);
+                System.err.printf("Tile %s attempt %d failed (%s), retrying in %d ms%n", tile, attempt, e.getMessage(), delay);
+                Thread.sleep(delay);
+            }
         }
     }
 
     public void convertJSON(String jsonResponse) {
-        Gson gson = new Gson();
-        JsonParser parser = new JsonParser();
-        JsonElement root = parser.parse(jsonResponse);
-        if (root.isJsonObject() && root.getAsJsonObject().has("elements")) {
-            JsonArray jsonArray = root.getAsJsonObject().getAsJsonArray("elements");
-            for (JsonElement element : jsonArray) {
-                JsonObject jsonobj = element.getAsJsonObject();
-                if (jsonobj.has("type")) {
-                    String type = jsonobj.get("type").getAsString();
-                    if ("node".equals(type)) {
-                        Graph.Node node = gson.fromJson(jsonobj, Graph.Node.class);
-                        nodes.add(node);
-                        //System.out.println(node.id + "\n" + node.lat + "\n" + node.lon + "\n");
+        try {
+            convertJSON(new StringReader(jsonResponse));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void convertJSON(Reader jsonResponse) throws IOException {
+        JsonReader reader = new JsonReader(jsonResponse);
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            System.err.println("Invalid JSON format: Expected an array.");
+            return;
+        }
+        boolean foundElements = false;
+        String remark = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("elements".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                foundElements = true;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readElement(reader);
+                }
+                reader.endArray();
+            } else if ("remark".equals(name) && reader.peek() == JsonToken.STRING) {
+                remark = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        // Overpass reports timeouts and memory exhaustion as HTTP 200 with a remark and whatever elements it had.
+        if (remark != null) {
+            throw new IOException("Overpass returned a partial response: " + remark);
+        }
+        if (!foundElements) {System.err.println("Invalid JSON format: Expected an array.");}
+    }
+
+    private void readElement(JsonReader reader) throws IOException {
+        String type = null;
+        long id = 0;
+        double lat = 0;
+        double lon = 0;
+        LongList wayNodes = null;
+        Map<String, String> tags = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "type" -> type = reader.nextString();
+                case "id" -> id = reader.nextLong();
+                case "lat" -> lat = reader.nextDouble();
+                case "lon" -> lon = reader.nextDouble();
+                case "nodes" -> {
+                    wayNodes = new LongList();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        wayNodes.add(reader.nextLong());
                     }
-                    else if ("way".equals(type)) {
-                        Graph.Way way = gson.fromJson(jsonobj, Graph.Way.class);
-                        if (tagMatches(way, desiredTags)) {
-                            ways.add(way);
-//                            System.out.println("Way ID: " + way.id);
-//                            System.out.println("Tags: " + way.tags);
-//                            System.out.println("Number of nodes: " + way.nodes.size());
-//                            System.out.println("First node ID: " + (way.nodes.isEmpty() ? "N/A" : way.nodes.get(0)));
-//                            System.out.println();
-                        }
+                    reader.endArray();
+                }
+                case "tags" -> {
+                    tags = new HashMap<>();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        tags.put(reader.nextName(), reader.nextString());
                     }
+                    reader.endObject();
                 }
+                default -> reader.skipValue();
             }
-        } else {System.err.println("Invalid JSON format: Expected an array.");}
+        }
+        reader.endObject();
+        if ("node".equals(type)) {
+            nodes.add(new Graph.Node(lat, lon, id));
+        } else if ("way".equals(type)) {
+            if (tags == null) tags = new HashMap<>();
+            Graph.Way way = new Graph.Way(tags.get("name"), id, wayNodes != null ? wayNodes : new LongList(), tags);
+            if (tagMatches(way, desiredTags)) {
+                ways.add(way);
+            }
+        }
+    }
+
+    public void load(Path extract) {
+        OsmReader reader = new OsmReader(way -> tagMatches(way, desiredTags));
+        try {
+            reader.read(extract);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        nodes.addAll(reader.getNodes());
+        ways.addAll(reader.getWays());
     }
 
     private boolean tagMatches(Graph.Way way, List<String> desiredTags) {
@@ -93,12 +304,12 @@ public class Overpasser {
 
     public static void main(String[] args) throws UnsupportedEncodingException {
         Overpasser op = new Overpasser();
-        op.request(op.query);
+        op.requestTiled(SAN_FRANCISCO, 0.05, 2);
         List<Graph.Way> ways = op.getWays();
         List<Long> ids = new ArrayList<>();
         for (Graph.Way way : ways) {
-            for (long nodeID : way.nodes) {
-                ids.add(nodeID);
+            for (int i = 0; i < way.nodes.size(); i++) {
+                ids.add(way.nodes.get(i));
             }
         }
         Collections.sort(ids);
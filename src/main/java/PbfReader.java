@@ -0,0 +1,354 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+class PbfReader {
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+    private final Path file;
+    private final int threads;
+
+    PbfReader(Path file, int threads) {
+        this.file = file;
+        this.threads = Math.max(1, threads);
+    }
+
+    void readWays(Predicate<Graph.Way> filter, List<Graph.Way> out) throws IOException {
+        forEachBlock(block -> decodeWays(block, filter), out);
+    }
+
+    void readNodes(LongIntHashMap wanted, List<Graph.Node> out) throws IOException {
+        forEachBlock(block -> decodeNodes(block, wanted), out);
+    }
+
+    private interface BlockDecoder<T> {
+        List<T> decode(byte[] block) throws IOException;
+    }
+
+    // Blobs are read sequentially but inflated and decoded on the pool; results are
+    // merged in file order and at most two blocks per thread are in flight at once.
+    private <T> void forEachBlock(BlockDecoder<T> decoder, List<T> out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Deque<Future<List<T>>> pending = new ArrayDeque<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int headerSize;
+                try {
+                    headerSize = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (headerSize < 0 || headerSize > MAX_HEADER_SIZE) {
+                    throw new IOException("Invalid PBF blob header size " + headerSize);
+                }
+                byte[] header = new byte[headerSize];
+                in.readFully(header);
+                String type = null;
+                int dataSize = 0;
+                Proto blobHeader = new Proto(header, 0, header.length);
+                while (blobHeader.hasMore()) {
+                    int tag = blobHeader.readTag();
+                    switch (tag >>> 3) {
+                        case 1 -> type = blobHeader.readString();
+                        case 3 -> dataSize = (int) blobHeader.readVarint();
+                        default -> blobHeader.skip(tag & 7);
+                    }
+                }
+                if (dataSize < 0 || dataSize > MAX_BLOB_SIZE) {
+                    throw new IOException("Invalid PBF blob size " + dataSize);
+                }
+                byte[] blob = new byte[dataSize];
+                in.readFully(blob);
+                if (!"OSMData".equals(type)) {
+                    continue;
+                }
+                pending.add(pool.submit(() -> decoder.decode(inflate(blob))));
+                if (pending.size() >= threads * 2) {
+                    out.addAll(await(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                out.addAll(await(pending.poll()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static <T> List<T> await(Future<List<T>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decoding PBF", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to decode PBF block", e.getCause());
+        }
+    }
+
+    private static byte[] inflate(byte[] blob) throws IOException {
+        Proto proto = new Proto(blob, 0, blob.length);
+        byte[] raw = null;
+        int rawSize = 0;
+        Proto zlib = null;
+        while (proto.hasMore()) {
+            int tag = proto.readTag();
+            switch (tag >>> 3) {
+                case 1 -> raw = proto.readBytes();
+                case 2 -> rawSize = (int) proto.readVarint();
+                case 3 -> zlib = proto.readMessage();
+                default -> throw new IOException("Unsupported PBF blob compression (field " + (tag >>> 3) + ")");
+            }
+        }
+        if (raw != null) {
+            return raw;
+        }
+        if (zlib == null) {
+            throw new IOException("Empty PBF blob");
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlib.buf, zlib.pos, zlib.limit - zlib.pos);
+            byte[] data = new byte[rawSize];
+            int length = 0;
+            while (length < rawSize && !inflater.finished()) {
+                int inflated = inflater.inflate(data, length, rawSize - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawSize) {
+                throw new IOException("Truncated PBF blob");
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt PBF blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static List<Graph.Way> decodeWays(byte[] block, Predicate<Graph.Way> filter) {
+        List<Graph.Way> ways = new ArrayList<>();
+        Proto primitiveBlock = new Proto(block, 0, block.length);
+        String[] strings = new String[0];
+        List<Proto> groups = new ArrayList<>();
+        while (primitiveBlock.hasMore()) {
+            int tag = primitiveBlock.readTag();
+            switch (tag >>> 3) {
+                case 1 -> strings = decodeStringTable(primitiveBlock.readMessage());
+                case 2 -> groups.add(primitiveBlock.readMessage());
+                default -> primitiveBlock.skip(tag & 7);
+            }
+        }
+        for (Proto group : groups) {
+            while (group.hasMore()) {
+                int tag = group.readTag();
+                if ((tag >>> 3) != 3) {
+                    group.skip(tag & 7);
+                    continue;
+                }
+                Proto wayMessage = group.readMessage();
+                long id = 0;
+                Proto keys = null;
+                Proto values = null;
+                Proto refs = null;
+                while (wayMessage.hasMore()) {
+                    int wayTag = wayMessage.readTag();
+                    switch (wayTag >>> 3) {
+                        case 1 -> id = wayMessage.readVarint();
+                        case 2 -> keys = wayMessage.readMessage();
+                        case 3 -> values = wayMessage.readMessage();
+                        case 8 -> refs = wayMessage.readMessage();
+                        default -> wayMessage.skip(wayTag & 7);
+                    }
+                }
+                Map<String, String> tags = new HashMap<>();
+                while (keys != null && values != null && keys.hasMore() && values.hasMore()) {
+                    tags.put(strings[(int) keys.readVarint()], strings[(int) values.readVarint()]);
+                }
+                LongList nodeIds = new LongList();
+                long ref = 0;
+                while (refs != null && refs.hasMore()) {
+                    ref += refs.readSignedVarint();
+                    nodeIds.add(ref);
+                }
+                Graph.Way way = new Graph.Way(tags.get("name"), id, nodeIds, tags);
+                if (filter.test(way)) {
+                    ways.add(way);
+                }
+            }
+        }
+        return ways;
+    }
+
+    private static List<Graph.Node> decodeNodes(byte[] block, LongIntHashMap wanted) {
+        List<Graph.Node> nodes = new ArrayList<>();
+        Proto primitiveBlock = new Proto(block, 0, block.length);
+        long granularity = 100;
+        long latOffset = 0;
+        long lonOffset = 0;
+        List<Proto> groups = new ArrayList<>();
+        while (primitiveBlock.hasMore()) {
+            int tag = primitiveBlock.readTag();
+            switch (tag >>> 3) {
+                case 2 -> groups.add(primitiveBlock.readMessage());
+                case 17 -> granularity = primitiveBlock.readVarint();
+                case 19 -> latOffset = primitiveBlock.readVarint();
+                case 20 -> lonOffset = primitiveBlock.readVarint();
+                default -> primitiveBlock.skip(tag & 7);
+            }
+        }
+        for (Proto group : groups) {
+            while (group.hasMore()) {
+                int tag = group.readTag();
+                switch (tag >>> 3) {
+                    case 1 -> {
+                        Proto nodeMessage = group.readMessage();
+                        long id = 0;
+                        long lat = 0;
+                        long lon = 0;
+                        while (nodeMessage.hasMore()) {
+                            int nodeTag = nodeMessage.readTag();
+                            switch (nodeTag >>> 3) {
+                                case 1 -> id = nodeMessage.readSignedVarint();
+                                case 8 -> lat = nodeMessage.readSignedVarint();
+                                case 9 -> lon = nodeMessage.readSignedVarint();
+                                default -> nodeMessage.skip(nodeTag & 7);
+                            }
+                        }
+                        if (wanted.containsKey(id)) {
+                            nodes.add(new Graph.Node(1e-9 * (latOffset + granularity * lat),
+                                    1e-9 * (lonOffset + granularity * lon), id));
+                        }
+                    }
+                    case 2 -> {
+                        Proto dense = group.readMessage();
+                        Proto ids = null;
+                        Proto lats = null;
+                        Proto lons = null;
+                        while (dense.hasMore()) {
+                            int denseTag = dense.readTag();
+                            switch (denseTag >>> 3) {
+                                case 1 -> ids = dense.readMessage();
+                                case 8 -> lats = dense.readMessage();
+                                case 9 -> lons = dense.readMessage();
+                                default -> dense.skip(denseTag & 7);
+                            }
+                        }
+                        long id = 0;
+                        long lat = 0;
+                        long lon = 0;
+                        while (ids != null && ids.hasMore()) {
+                            id += ids.readSignedVarint();
+                            lat += lats.readSignedVarint();
+                            lon += lons.readSignedVarint();
+                            if (wanted.containsKey(id)) {
+                                nodes.add(new Graph.Node(1e-9 * (latOffset + granularity * lat),
+                                        1e-9 * (lonOffset + granularity * lon), id));
+                            }
+                        }
+                    }
+                    default -> group.skip(tag & 7);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    private static String[] decodeStringTable(Proto table) {
+        List<String> strings = new ArrayList<>();
+        while (table.hasMore()) {
+            int tag = table.readTag();
+            if ((tag >>> 3) == 1) {
+                strings.add(table.readString());
+            } else {
+                table.skip(tag & 7);
+            }
+        }
+        return strings.toArray(new String[0]);
+    }
+
+    private static final class Proto {
+        final byte[] buf;
+        int pos;
+        final int limit;
+
+        Proto(byte[] buf, int pos, int limit) {
+            this.buf = buf;
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        boolean hasMore() {
+            return pos < limit;
+        }
+
+        int readTag() {
+            return (int) readVarint();
+        }
+
+        long readVarint() {
+            long result = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buf[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+        }
+
+        long readSignedVarint() {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        Proto readMessage() {
+            int length = (int) readVarint();
+            Proto message = new Proto(buf, pos, pos + length);
+            pos += length;
+            return message;
+        }
+
+        byte[] readBytes() {
+            int length = (int) readVarint();
+            byte[] bytes = Arrays.copyOfRange(buf, pos, pos + length);
+            pos += length;
+            return bytes;
+        }
+
+        String readString() {
+            int length = (int) readVarint();
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        void skip(int wireType) {
+            switch (wireType) {
+                case 0 -> readVarint();
+                case 1 -> pos += 8;
+                case 2 -> {
+                    int length = (int) readVarint();
+                    pos += length;
+                }
+                case 5 -> pos += 4;
+                default -> throw new IllegalStateException("Unsupported protobuf wire type " + wireType);
+            }
+        }
+    }
+}
@@ -1,10 +1,21 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
 import java.util.stream.Collectors;
 
 public class Preprocessor {
+    private static final int MIN_PARALLEL_CHUNK = 512;
     private Overpasser overpasser;
+    private final boolean parallel;
+
     public Preprocessor(Overpasser overpasser) {
+        this(overpasser, false);
+    }
+
+    public Preprocessor(Overpasser overpasser, boolean parallel) {
         this.overpasser = overpasser;
+        this.parallel = parallel;
     }
 
 // START OF REFACTORING NOT COMPLETED
@@ -46,168 +57,174 @@ public class Preprocessor {
 // =========================================================================================================
 // END OF REFACTORING NOT COMPLETED
 
-    public List<Graph.Node> findIntermediaries() {
+    public List<Graph.processedWay> processWays() {
+        List<Graph.Way> ways = overpasser.getWays();
+        LongIntHashMap nodeOccurrence = parallel
+                ? ForkJoinPool.commonPool().invoke(new CountOccurrences(ways, 0, ways.size()))
+                : countOccurrences(ways, 0, ways.size());
         List<Graph.Node> nodes = overpasser.getNodes();
-        ArrayList<Graph.Node> newNodesList = new ArrayList<>();
-        Map<Long, Integer> nodeOccurrence = new HashMap<>();
-        for (Graph.Way way : overpasser.getWays()) {
-            for (Long nodeID : way.nodes) {
-                nodeOccurrence.put(nodeID, nodeOccurrence.getOrDefault(nodeID, 0) + 1);
-            }
-        }
-        //System.out.println("Node Ocurrences: " + nodeOccurrence);
+        LongObjectHashMap<Graph.Node> sourceNodes = new LongObjectHashMap<>(nodes.size());
         for (Graph.Node node : nodes) {
-            if (nodeOccurrence.getOrDefault(node.id, 0) > 1) {
-                newNodesList.add(new Graph.Node(node.lat, node.lon, node.id, true));
-            } else {
-                newNodesList.add(new Graph.Node(node.lat, node.lon, node.id, false));
-            }
+            sourceNodes.put(node.id, node);
         }
-        return newNodesList;
+        if (parallel) {
+            return ForkJoinPool.commonPool().invoke(new SplitWays(ways, 0, ways.size(), nodeOccurrence, sourceNodes));
+        }
+        return splitWays(ways, 0, ways.size(), nodeOccurrence, sourceNodes);
     }
 
-    private List<Graph.processedWay> splitWayByIntermediaries(Graph.Way way, Map<Long, Graph.Node> intermediateNodeMap) {
-        List<Graph.processedWay> newWays = new ArrayList<>();
-        List<Graph.Node> currentSegment = new ArrayList<>();
-        for (Long nodeId : way.nodes) {
-            Graph.Node node = intermediateNodeMap.get(nodeId);
-            if (node.Intermediary) {
-                currentSegment.add(node);
-                newWays.add(new Graph.processedWay(way.name, generateNewWayId(), new ArrayList<>(currentSegment), way.tags));
-                currentSegment.clear();
-                currentSegment.add(node);
-            } else {
-                currentSegment.add(new Graph.Node(node.lat, node.lon, node.id, node.Intermediary));
+    private static LongIntHashMap countOccurrences(List<Graph.Way> ways, int from, int to) {
+        LongIntHashMap nodeOccurrence = new LongIntHashMap((to - from) * 4);
+        for (int i = from; i < to; i++) {
+            LongList wayNodes = ways.get(i).nodes;
+            for (int j = 0; j < wayNodes.size(); j++) {
+                nodeOccurrence.addTo(wayNodes.get(j), 1);
             }
         }
-        if (!currentSegment.isEmpty()) {
-            newWays.add(new Graph.processedWay(way.name, generateNewWayId(), new ArrayList<>(currentSegment), way.tags));
-        }
-        return newWays;
+        return nodeOccurrence;
     }
 
-    public List<Graph.processedWay> processWaysWithIntermediaries() {
-        List<Graph.Node> intermediateNodes = findIntermediaries();
-        List<Graph.processedWay> newWays = new ArrayList<>();
-        Map<Long, Graph.Node> intermediateNodeMap = intermediateNodes.stream()
-                .collect(Collectors.toMap(node -> node.id, node -> node));
-        for (Graph.Way way : overpasser.getWays()) {
-            newWays.addAll(splitWayByIntermediaries(way, intermediateNodeMap));
-        }
-        return newWays;
+    private static int chunkSize(int ways) {
+        return Math.max(MIN_PARALLEL_CHUNK, ways / (ForkJoinPool.getCommonPoolParallelism() * 4));
     }
 
-    public List<Graph.processedWay> filterSingleNodeWays() {
-        List<Graph.processedWay> filteredWays = new ArrayList<>();
-        for (Graph.processedWay way : processWaysWithIntermediaries()) {
-            if (!(way.nodes.size() < 2)) {
-                filteredWays.add(way);
-            } else {
-                //System.out.println("NAME: " + way.name + "\nTAGS: " + way.tags + "\n" + way.nodes.size() + "\n");
+    private static class CountOccurrences extends RecursiveTask<LongIntHashMap> {
+        private static final long serialVersionUID = 1L;
+        private final transient List<Graph.Way> ways;
+        private final int from;
+        private final int to;
+
+        CountOccurrences(List<Graph.Way> ways, int from, int to) {
+            this.ways = ways;
+            this.from = from;
+            this.to = to;
+        }
 
+        @Override
+        protected LongIntHashMap compute() {
+            if (to - from <= chunkSize(ways.size())) {
+                return countOccurrences(ways, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            CountOccurrences left = new CountOccurrences(ways, from, mid);
+            left.fork();
+            LongIntHashMap right = new CountOccurrences(ways, mid, to).compute();
+            LongIntHashMap merged = left.join();
+            if (merged.size() < right.size()) {
+                LongIntHashMap swap = merged;
+                merged = right;
+                right = swap;
             }
+            LongIntHashMap target = merged;
+            right.forEach(target::addTo);
+            return merged;
         }
-//        for (Graph.processedWay way : filteredWays) {
-//            System.out.println("NAME: " + way.name + "\nTAGS: " + way.tags + "\n" + way.nodes.size() + "\n");
-//        }
-        return filteredWays;
     }
 
-    private long generateNewWayId() {
-        return 0;
-    }
+    private class SplitWays extends RecursiveTask<List<Graph.processedWay>> {
+        private static final long serialVersionUID = 1L;
+        private final transient List<Graph.Way> ways;
+        private final int from;
+        private final int to;
+        private final transient LongIntHashMap nodeOccurrence;
+        private final transient LongObjectHashMap<Graph.Node> sourceNodes;
 
-    public List<Graph.processedWay> addDistancesToWays() {
-        List<Graph.processedWay> newWays = new ArrayList<>();
-        for (Graph.processedWay way : filterSingleNodeWays()) {
-            double distance = 0;
-            for (int i = 0; i < way.nodes.size() - 1; i++) {
-                Graph.Node current = way.nodes.get(i);
-                Graph.Node next = way.nodes.get(i + 1);
-                distance += calculateDistance(current, next);
-            }
-            Graph.processedWay newWay = new Graph.processedWay(way.name, way.id, way.nodes, way.tags, distance);
-            //System.out.println("Processed Way: " + newWay.id + " distance: " + newWay.distance);
-            newWays.add(newWay);
+        SplitWays(List<Graph.Way> ways, int from, int to, LongIntHashMap nodeOccurrence,
+                  LongObjectHashMap<Graph.Node> sourceNodes) {
+            this.ways = ways;
+            this.from = from;
+            this.to = to;
+            this.nodeOccurrence = nodeOccurrence;
+            this.sourceNodes = sourceNodes;
         }
-        return newWays;
-    }
 
-    public List<Graph.processedWay> removeAllButFirstAndLast() {
-        List<Graph.processedWay> newWays = new ArrayList<>();
-        for (Graph.processedWay way : addDistancesToWays()) {
-            Graph.Node first = way.nodes.getFirst();
-            Graph.Node last = way.nodes.getLast();
-            List<Graph.Node> newNodesList = new ArrayList<>();
-            newNodesList.add(first);
-            newNodesList.add(last);
-            newWays.add(new Graph.processedWay(way.name, way.id, newNodesList, way.tags, way.distance));
-            //System.out.println(way.nodes.getFirst().id + " " + way.nodes.getLast().id + " " + way.distance);
+        @Override
+        protected List<Graph.processedWay> compute() {
+            if (to - from <= chunkSize(ways.size())) {
+                return splitWays(ways, from, to, nodeOccurrence, sourceNodes);
+            }
+            int mid = (from + to) >>> 1;
+            SplitWays left = new SplitWays(ways, from, mid, nodeOccurrence, sourceNodes);
+            left.fork();
+            List<Graph.processedWay> right = new SplitWays(ways, mid, to, nodeOccurrence, sourceNodes).compute();
+            List<Graph.processedWay> processedWays = left.join();
+            processedWays.addAll(right);
+            return processedWays;
         }
-        return newWays;
     }
 
-    public List<Graph.processedWay> getBiggestComponent() {
-        List<Graph.processedWay> currentWays = removeAllButFirstAndLast();
-        Set<Long> wayNodeIds = getNodeIdsFromWays(currentWays);
-        Map<Long, Integer> nodeIdToIndex = new HashMap<>();
-        int index = 0;
-        for (Long nodeId : wayNodeIds) {
-            nodeIdToIndex.put(nodeId, index++);
-        }
-        Union uf = new Union(nodeIdToIndex.size());
-        for (Graph.processedWay way : currentWays) {
-            Long nodeAId = way.nodes.getFirst().id;
-            Long nodeBId = way.nodes.getLast().id;
-            int idxA = nodeIdToIndex.get(nodeAId);
-            int idxB = nodeIdToIndex.get(nodeBId);
-            uf.unionFind(idxA, idxB);
-        }
-        int maxSize = 0;
-        int largestRoot = -1;
-        Map<Integer, Integer> rootSizes = new HashMap<>();
-        for (Long nodeId : wayNodeIds) {
-            int idx = nodeIdToIndex.get(nodeId);
-            int root = uf.find(idx);
-            int size = rootSizes.getOrDefault(root, 0) + 1;
-            rootSizes.put(root, size);
-            if (size > maxSize) {
-                maxSize = size;
-                largestRoot = root;
+    // Endpoints are shared between the segments of one chunk; Graph merges copies from different chunks by id.
+    private List<Graph.processedWay> splitWays(List<Graph.Way> ways, int from, int to, LongIntHashMap nodeOccurrence,
+                                               LongObjectHashMap<Graph.Node> sourceNodes) {
+        LongObjectHashMap<Graph.Node> endpoints = new LongObjectHashMap<>();
+        List<Graph.processedWay> processedWays = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Graph.Way way = ways.get(i);
+            Graph.Node start = null;
+            Graph.Node previous = null;
+            int segmentLength = 0;
+            double distance = 0;
+            for (int j = 0; j < way.nodes.size(); j++) {
+                long nodeID = way.nodes.get(j);
+                Graph.Node node = sourceNodes.get(nodeID);
+                if (node == null) {continue;}
+                if (start == null) {
+                    start = node;
+                } else {
+                    distance += Geo.haversine(previous, node);
+                }
+                previous = node;
+                segmentLength++;
+                if (nodeOccurrence.get(nodeID, 0) > 1) {
+                    if (segmentLength > 1) {
+                        processedWays.add(collapse(way, start, node, distance, nodeOccurrence, endpoints));
+                    }
+                    start = node;
+                    segmentLength = 1;
+                    distance = 0;
+                }
             }
-        }
-        Set<Long> largestComponentNodeIds = new HashSet<>();
-        for (Long nodeId : wayNodeIds) {
-            int idx = nodeIdToIndex.get(nodeId);
-            if (uf.find(idx) == largestRoot) {
-                largestComponentNodeIds.add(nodeId);
+            if (segmentLength > 1) {
+                processedWays.add(collapse(way, start, previous, distance, nodeOccurrence, endpoints));
             }
         }
-        List<Graph.processedWay> filteredWays = currentWays.stream()
-                .filter(way -> largestComponentNodeIds.contains(way.nodes.getFirst().id) &&
-                        largestComponentNodeIds.contains(way.nodes.getLast().id))
-                .collect(Collectors.toList());
+        return processedWays;
+    }
 
-        return filteredWays;
+    private Graph.processedWay collapse(Graph.Way way, Graph.Node first, Graph.Node last, double distance,
+                                        LongIntHashMap nodeOccurrence, LongObjectHashMap<Graph.Node> endpoints) {
+        List<Graph.Node> ends = new ArrayList<>(2);
+        ends.add(endpoint(first, nodeOccurrence, endpoints));
+        ends.add(endpoint(last, nodeOccurrence, endpoints));
+        return new Graph.processedWay(way.name, way.id, ends, way.tags, distance);
     }
 
-    private Set<Long> getNodeIdsFromWays(List<Graph.processedWay> ways) {
-        Set<Long> nodeIds = new HashSet<>();
-        for (Graph.processedWay way : ways) {
-            nodeIds.add(way.nodes.getFirst().id);
-            nodeIds.add(way.nodes.getLast().id);
-        }
-        return nodeIds;
+    private Graph.Node endpoint(Graph.Node source, LongIntHashMap nodeOccurrence, LongObjectHashMap<Graph.Node> endpoints) {
+        return endpoints.computeIfAbsent(source.id,
+                id -> new Graph.Node(source.lat, source.lon, id, nodeOccurrence.get(id, 0) > 1));
     }
 
-    public double calculateDistance(Graph.Node node1, Graph.Node node2) {
-        double lat1 = node1.lat;
-        double lon1 = node1.lon;
-        double lat2 = node2.lat;
-        double lon2 = node2.lon;
-        int r = 6371;
-        double p = Math.PI / 180;
-        double a = 0.5 - Math.cos((lat2 - lat1) * p) / 2 + Math.cos(lat1 * p) * Math.cos(lat2 * p) * (1 - Math.cos((lon2 - lon1) * p)) / 2;
-        return 2 * r * Math.asin(Math.sqrt(a));
+    public List<Graph.processedWay> getBiggestComponent() {
+        List<Graph.processedWay> currentWays = processWays();
+        LongIntHashMap nodeIdToIndex = new LongIntHashMap(currentWays.size());
+        int[] wayEnds = new int[currentWays.size() * 2];
+        for (int i = 0; i < currentWays.size(); i++) {
+            Graph.processedWay way = currentWays.get(i);
+            long nodeAId = way.nodes.getFirst().id;
+            long nodeBId = way.nodes.getLast().id;
+            nodeIdToIndex.putIfAbsent(nodeAId, nodeIdToIndex.size());
+            nodeIdToIndex.putIfAbsent(nodeBId, nodeIdToIndex.size());
+            wayEnds[2 * i] = nodeIdToIndex.get(nodeAId, -1);
+            wayEnds[2 * i + 1] = nodeIdToIndex.get(nodeBId, -1);
+        }
+        ConcurrentUnion uf = new ConcurrentUnion(nodeIdToIndex.size());
+        IntStream wayIndices = IntStream.range(0, currentWays.size());
+        (parallel ? wayIndices.parallel() : wayIndices).forEach(i -> uf.unionFind(wayEnds[2 * i], wayEnds[2 * i + 1]));
+        int largestRoot = uf.largestRoot(parallel);
+        IntStream keptIndices = IntStream.range(0, currentWays.size());
+        return (parallel ? keptIndices.parallel() : keptIndices)
+                .filter(i -> uf.find(wayEnds[2 * i]) == largestRoot)
+                .mapToObj(currentWays::get)
+                .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,221 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+// Dijkstra over the CSR arrays of a Graph. All per-query state lives in arrays sized once per graph and
+// invalidated by bumping an epoch, so repeated queries do not allocate. Not thread-safe; use one per thread.
+public class ShortestPaths {
+    private static final int ARITY = 4;
+    private static final int SETTLED = -2;
+    private final Graph graph;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    private final int[] mirrors;
+    private final double[] dist;
+    private final int[] predecessorSlot;
+    private final int[] heapPosition;
+    private final int[] stamp;
+    private final int[] heap;
+    private int heapSize;
+    private int epoch;
+    private int source = -1;
+
+    public ShortestPaths(Graph graph) {
+        this.graph = graph;
+        this.offsets = graph.getOffsets();
+        this.targets = graph.getTargets();
+        this.weights = graph.getSlotDistances();
+        this.mirrors = graph.getMirrors();
+        int n = graph.getNodes().size();
+        dist = new double[n];
+        predecessorSlot = new int[n];
+        heapPosition = new int[n];
+        stamp = new int[n];
+        heap = new int[n];
+    }
+
+    public double query(int source, int target) {
+        run(source, target, null, null);
+        return distance(target);
+    }
+
+    public void searchAll(int source) {
+        run(source, -1, null, null);
+    }
+
+    public void searchAll(int source, IntConsumer scannedSlot) {
+        run(source, -1, scannedSlot, null);
+    }
+
+    // Settles nodes in distance order and stops as soon as settled returns true.
+    public void searchUntil(int source, IntPredicate settled) {
+        run(source, -1, null, settled);
+    }
+
+    private void run(int source, int target, IntConsumer scannedSlot, IntPredicate settled) {
+        nextEpoch();
+        this.source = source;
+        heapSize = 0;
+        touch(source);
+        dist[source] = 0;
+        push(source);
+        while (heapSize > 0) {
+            int current = pop();
+            if (current == target || (settled != null && settled.test(current))) {
+                return;
+            }
+            double base = dist[current];
+            for (int slot = offsets[current]; slot < offsets[current + 1]; slot++) {
+                if (scannedSlot != null) {
+                    scannedSlot.accept(slot);
+                }
+                int next = targets[slot];
+                if (stamp[next] != epoch) {
+                    touch(next);
+                } else if (heapPosition[next] == SETTLED) {
+                    continue;
+                }
+                double candidate = base + weights[slot];
+                if (candidate < dist[next]) {
+                    dist[next] = candidate;
+                    predecessorSlot[next] = slot;
+                    if (heapPosition[next] < 0) {
+                        push(next);
+                    } else {
+                        siftUp(heapPosition[next]);
+                    }
+                }
+            }
+        }
+    }
+
+    public double distance(int node) {
+        return stamp[node] == epoch ? dist[node] : Double.POSITIVE_INFINITY;
+    }
+
+    public boolean isReached(int node) {
+        return stamp[node] == epoch && dist[node] < Double.POSITIVE_INFINITY;
+    }
+
+    // Slot of the edge used to reach node, or -1 for the source and unreached nodes.
+    public int predecessorSlot(int node) {
+        return stamp[node] == epoch ? predecessorSlot[node] : -1;
+    }
+
+    // Writes the node indices of the path from the last source to target into out and returns how many were
+    // written, or 0 if target was not reached. out must hold at least as many entries as the path has nodes.
+    public int path(int target, int[] out) {
+        if (!isReached(target)) {
+            return 0;
+        }
+        int length = 1;
+        for (int node = target; node != source; node = pathPredecessor(node)) {
+            length++;
+        }
+        int position = length - 1;
+        for (int node = target; ; node = pathPredecessor(node)) {
+            out[position--] = node;
+            if (node == source) {
+                break;
+            }
+        }
+        return length;
+    }
+
+    public List<Graph.Node> path(int target) {
+        int[] indices = new int[heap.length];
+        int length = path(target, indices);
+        List<Graph.Node> nodes = graph.getNodes();
+        List<Graph.Node> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            path.add(nodes.get(indices[i]));
+        }
+        return path;
+    }
+
+    private int pathPredecessor(int node) {
+        return targets[mirrors[predecessorSlot[node]]];
+    }
+
+    private void nextEpoch() {
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+    }
+
+    private void touch(int node) {
+        stamp[node] = epoch;
+        dist[node] = Double.POSITIVE_INFINITY;
+        predecessorSlot[node] = -1;
+        heapPosition[node] = -1;
+    }
+
+    private void push(int node) {
+        heap[heapSize] = node;
+        heapPosition[node] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapPosition[top] = SETTLED;
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapPosition[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int position) {
+        int node = heap[position];
+        double key = dist[node];
+        while (position > 0) {
+            int parent = (position - 1) / ARITY;
+            int parentNode = heap[parent];
+            if (dist[parentNode] <= key) {
+                break;
+            }
+            heap[position] = parentNode;
+            heapPosition[parentNode] = position;
+            position = parent;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
+    }
+
+    private void siftDown(int position) {
+        int node = heap[position];
+        double key = dist[node];
+        while (true) {
+            int first = position * ARITY + 1;
+            if (first >= heapSize) {
+                break;
+            }
+            int best = first;
+            double bestKey = dist[heap[first]];
+            int end = Math.min(first + ARITY, heapSize);
+            for (int child = first + 1; child < end; child++) {
+                double childKey = dist[heap[child]];
+                if (childKey < bestKey) {
+                    best = child;
+                    bestKey = childKey;
+                }
+            }
+            if (bestKey >= key) {
+                break;
+            }
+            heap[position] = heap[best];
+            heapPosition[heap[best]] = position;
+            position = best;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
+    }
+}
@@ -0,0 +1,369 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Offline road networks for scaling tests. Every topology is built straight into segment arrays and handed to
+// Graph.fromSegments, so a 10M-edge city needs no download, no ways and no preprocessing.
+//   meanDegree    grid: share of the 4 blocks around a crossing that exist (4 = no missing blocks);
+//                 geometric: mean degree; a spanning forest of short links topped up with the next shortest ones;
+//                 ring-radial: 2 from the ring roads plus radial streets for the rest.
+//   deadEndRatio  cul-de-sac nodes hung off random crossings, as a share of nodes; the 2-core prunes them.
+//   spacingKm     typical crossing-to-crossing distance.
+//   lengthStretch how much longer than the straight line a road is: length = line * (1 + |N(0, stretch)|),
+//                 so lengths never undercut the geometry.
+public class SyntheticGraphs {
+    private static final double BASE_LAT = 37.75;
+    private static final double BASE_LON = -122.45;
+    private static final double KM_PER_DEGREE = 111.32;
+
+    public enum Topology { GRID, GEOMETRIC, RING_RADIAL }
+
+    public record Spec(Topology topology, int nodes, double meanDegree, double deadEndRatio, double spacingKm,
+                       double lengthStretch, long seed) {
+        public static Spec of(Topology topology, int nodes, long seed) {
+            double meanDegree = switch (topology) {
+                case GRID -> 3.6;
+                case GEOMETRIC -> 3;
+                case RING_RADIAL -> 3;
+            };
+            return new Spec(topology, nodes, meanDegree, 0.05, 0.1, 0.1, seed);
+        }
+    }
+
+    // Growable segment list in parallel arrays; node positions are kept in km around the base point.
+    private static class Builder {
+        final Random random;
+        final Spec spec;
+        double[] x;
+        double[] y;
+        int nodeCount;
+        int[] from = new int[16];
+        int[] to = new int[16];
+        int segmentCount;
+
+        Builder(Spec spec, int expectedNodes) {
+            this.spec = spec;
+            this.random = new Random(spec.seed());
+            x = new double[expectedNodes];
+            y = new double[expectedNodes];
+        }
+
+        int node(double xKm, double yKm) {
+            if (nodeCount == x.length) {
+                x = Arrays.copyOf(x, Math.max(16, nodeCount * 2));
+                y = Arrays.copyOf(y, x.length);
+            }
+            x[nodeCount] = xKm;
+            y[nodeCount] = yKm;
+            return nodeCount++;
+        }
+
+        void segment(int a, int b) {
+            if (segmentCount == from.length) {
+                from = Arrays.copyOf(from, segmentCount * 2);
+                to = Arrays.copyOf(to, from.length);
+            }
+            from[segmentCount] = a;
+            to[segmentCount] = b;
+            segmentCount++;
+        }
+
+        double jitter() {
+            return random.nextGaussian() * spec.spacingKm() * 0.1;
+        }
+
+        void addDeadEnds() {
+            int crossings = nodeCount;
+            int target = (int) Math.round(crossings * spec.deadEndRatio());
+            int added = 0;
+            while (added < target && crossings > 0) {
+                int previous = random.nextInt(crossings);
+                double angle = random.nextDouble() * 2 * Math.PI;
+                int length = Math.min(target - added, 1 + random.nextInt(3));
+                for (int k = 1; k <= length; k++) {
+                    int next = node(x[previous] + Math.cos(angle) * spec.spacingKm() * 0.5,
+                            y[previous] + Math.sin(angle) * spec.spacingKm() * 0.5);
+                    segment(previous, next);
+                    previous = next;
+                    added++;
+                }
+            }
+        }
+
+        // The solvers need one connected network, as Preprocessor.getBiggestComponent guarantees for downloads.
+        void keepLargestComponent() {
+            ConcurrentUnion uf = new ConcurrentUnion(nodeCount);
+            for (int k = 0; k < segmentCount; k++) {
+                uf.unionFind(from[k], to[k]);
+            }
+            int largestRoot = uf.largestRoot(false);
+            int[] remap = new int[nodeCount];
+            int kept = 0;
+            for (int i = 0; i < nodeCount; i++) {
+                if (uf.find(i) == largestRoot) {
+                    remap[i] = kept;
+                    x[kept] = x[i];
+                    y[kept] = y[i];
+                    kept++;
+                } else {
+                    remap[i] = -1;
+                }
+            }
+            int keptSegments = 0;
+            for (int k = 0; k < segmentCount; k++) {
+                if (remap[from[k]] >= 0) {
+                    from[keptSegments] = remap[from[k]];
+                    to[keptSegments] = remap[to[k]];
+                    keptSegments++;
+                }
+            }
+            nodeCount = kept;
+            segmentCount = keptSegments;
+        }
+
+        Graph build() {
+            long start = System.nanoTime();
+            keepLargestComponent();
+            List<Graph.Node> nodes = new ArrayList<>(nodeCount);
+            for (int i = 0; i < nodeCount; i++) {
+                double lat = BASE_LAT + y[i] / KM_PER_DEGREE;
+                double lon = BASE_LON + x[i] / (KM_PER_DEGREE * Math.cos(Math.toRadians(BASE_LAT)));
+                nodes.add(new Graph.Node(lat, lon, i + 1L, false));
+            }
+            int[] segmentFrom = Arrays.copyOf(from, segmentCount);
+            int[] segmentTo = Arrays.copyOf(to, segmentCount);
+            double[] distances = new double[segmentCount];
+            new Geo.Coordinates(nodes).distances(segmentFrom, segmentTo, distances);
+            for (int k = 0; k < segmentCount; k++) {
+                distances[k] *= 1 + Math.abs(random.nextGaussian() * spec.lengthStretch());
+            }
+            System.out.printf("Generated %s: %d nodes, %d segments in %d ms%n", spec.topology(), nodeCount,
+                    segmentCount, (System.nanoTime() - start) / 1_000_000);
+            return Graph.fromSegments(nodes, segmentFrom, segmentTo, distances, new String[segmentCount]);
+        }
+    }
+
+    public static Graph generate(Spec spec) {
+        Builder builder = new Builder(spec, (int) Math.min(Integer.MAX_VALUE - 8,
+                (long) Math.ceil(spec.nodes() * (1 + spec.deadEndRatio())) + 16));
+        switch (spec.topology()) {
+            case GRID -> grid(builder);
+            case GEOMETRIC -> geometric(builder);
+            case RING_RADIAL -> ringRadial(builder);
+        }
+        builder.addDeadEnds();
+        return builder.build();
+    }
+
+    private static void grid(Builder builder) {
+        Spec spec = builder.spec;
+        int side = Math.max(2, (int) Math.round(Math.sqrt(spec.nodes())));
+        double keep = Math.min(1, spec.meanDegree() / 4);
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                builder.node(column * spec.spacingKm() + builder.jitter(), row * spec.spacingKm() + builder.jitter());
+            }
+        }
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                int node = row * side + column;
+                if (column + 1 < side && builder.random.nextDouble() < keep) {
+                    builder.segment(node, node + 1);
+                }
+                if (row + 1 < side && builder.random.nextDouble() < keep) {
+                    builder.segment(node, node + side);
+                }
+            }
+        }
+    }
+
+    // Uniform points at the density the spacing implies. Each point proposes links to its k nearest neighbours,
+    // one more than the mean degree so the candidates form one giant component; a bucket grid with cells of one
+    // spacing keeps that search linear. From the distinct candidates, shortest first, a spanning forest is taken
+    // (Kruskal) and then the shortest remaining links until the mean degree is met.
+    private static void geometric(Builder builder) {
+        Spec spec = builder.spec;
+        int n = spec.nodes();
+        double side = Math.sqrt(n) * spec.spacingKm();
+        int cells = Math.max(1, (int) (side / spec.spacingKm()));
+        double cellSize = side / cells;
+        for (int i = 0; i < n; i++) {
+            builder.node(builder.random.nextDouble() * side, builder.random.nextDouble() * side);
+        }
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            int cx = Math.min(cells - 1, (int) (builder.x[i] / cellSize));
+            int cy = Math.min(cells - 1, (int) (builder.y[i] / cellSize));
+            cellOf[i] = cy * cells + cx;
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] fill = Arrays.copyOf(cellStart, cells * cells);
+        int[] members = new int[n];
+        for (int i = 0; i < n; i++) {
+            members[fill[cellOf[i]]++] = i;
+        }
+
+        int maxLinks = (int) Math.ceil(spec.meanDegree()) + 1;
+        long[] pairs = new long[(int) Math.min(Integer.MAX_VALUE - 8, (long) n * maxLinks)];
+        int pairCount = 0;
+        int[] best = new int[maxLinks];
+        double[] bestDistance = new double[maxLinks];
+        for (int i = 0; i < n; i++) {
+            int k = maxLinks;
+            int found = 0;
+            int cx = cellOf[i] % cells;
+            int cy = cellOf[i] / cells;
+            for (int radius = 1; ; radius++) {
+                found = 0;
+                for (int gy = Math.max(0, cy - radius); gy <= Math.min(cells - 1, cy + radius); gy++) {
+                    for (int gx = Math.max(0, cx - radius); gx <= Math.min(cells - 1, cx + radius); gx++) {
+                        int cell = gy * cells + gx;
+                        for (int m = cellStart[cell]; m < cellStart[cell + 1]; m++) {
+                            int j = members[m];
+                            if (j == i) {
+                                continue;
+                            }
+                            double dx = builder.x[j] - builder.x[i];
+                            double dy = builder.y[j] - builder.y[i];
+                            found = insertNearest(best, bestDistance, found, k, j, dx * dx + dy * dy);
+                        }
+                    }
+                }
+                // Points outside the searched square are at least radius cells away; stop once the kth is closer.
+                double reach = radius * cellSize;
+                if (found == k && bestDistance[k - 1] <= reach * reach || radius >= cells) {
+                    break;
+                }
+            }
+            for (int t = 0; t < found; t++) {
+                pairs[pairCount++] = (long) Math.min(i, best[t]) * n + Math.max(i, best[t]);
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+        int distinct = 0;
+        for (int p = 0; p < pairCount; p++) {
+            if (p == 0 || pairs[p] != pairs[p - 1]) {
+                pairs[distinct++] = pairs[p];
+            }
+        }
+        // Float length bits sort like the lengths themselves, leaving the low half of the key for the pair index.
+        long[] byLength = new long[distinct];
+        for (int p = 0; p < distinct; p++) {
+            int a = (int) (pairs[p] / n);
+            int b = (int) (pairs[p] % n);
+            double dx = builder.x[a] - builder.x[b];
+            double dy = builder.y[a] - builder.y[b];
+            byLength[p] = (long) Float.floatToIntBits((float) (dx * dx + dy * dy)) << 32 | p;
+        }
+        Arrays.sort(byLength);
+        long target = Math.round(spec.meanDegree() * n / 2);
+        boolean[] taken = new boolean[distinct];
+        Union forest = new Union(n);
+        for (long key : byLength) {
+            int p = (int) key;
+            int a = (int) (pairs[p] / n);
+            int b = (int) (pairs[p] % n);
+            if (forest.find(a) != forest.find(b)) {
+                forest.unionFind(a, b);
+                taken[p] = true;
+                builder.segment(a, b);
+            }
+        }
+        for (int q = 0; q < distinct && builder.segmentCount < target; q++) {
+            int p = (int) byLength[q];
+            if (!taken[p]) {
+                builder.segment((int) (pairs[p] / n), (int) (pairs[p] % n));
+            }
+        }
+    }
+
+    private static int insertNearest(int[] best, double[] bestDistance, int found, int k, int candidate, double distance) {
+        if (found == k && distance >= bestDistance[k - 1]) {
+            return found;
+        }
+        int position = found == k ? k - 1 : found++;
+        while (position > 0 && bestDistance[position - 1] > distance) {
+            best[position] = best[position - 1];
+            bestDistance[position] = bestDistance[position - 1];
+            position--;
+        }
+        best[position] = candidate;
+        bestDistance[position] = distance;
+        return found;
+    }
+
+    // Concentric ring roads one spacing apart, each with as many crossings as its circumference allows, and
+    // radial streets linking a crossing to the nearest crossing on the ring inside it.
+    private static void ringRadial(Builder builder) {
+        Spec spec = builder.spec;
+        int rings = Math.max(1, (int) Math.round(Math.sqrt(spec.nodes() / Math.PI)));
+        double radial = Math.max(0, Math.min(1, (spec.meanDegree() - 2) / 2));
+        int centre = builder.node(0, 0);
+        int previousStart = centre;
+        int previousCount = 1;
+        for (int ring = 1; ring <= rings; ring++) {
+            int count = Math.max(6, (int) Math.round(2 * Math.PI * ring));
+            double offset = builder.random.nextDouble() * 2 * Math.PI / count;
+            int start = builder.nodeCount;
+            for (int k = 0; k < count; k++) {
+                double angle = offset + 2 * Math.PI * k / count;
+                double radius = ring * spec.spacingKm();
+                builder.node(Math.cos(angle) * radius + builder.jitter(), Math.sin(angle) * radius + builder.jitter());
+            }
+            for (int k = 0; k < count; k++) {
+                builder.segment(start + k, start + (k + 1) % count);
+                if (ring == 1 || builder.random.nextDouble() < radial) {
+                    int inner = previousStart + (int) ((long) k * previousCount / count);
+                    builder.segment(start + k, inner);
+                }
+            }
+            previousStart = start;
+            previousCount = count;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: SyntheticGraphs <grid|geometric|ring-radial> <nodes> [seed] [snapshot file]");
+            return;
+        }
+        Topology topology = Topology.valueOf(args[0].toUpperCase().replace('-', '_'));
+        Spec spec = Spec.of(topology, Integer.parseInt(args[1]), args.length > 2 ? Long.parseLong(args[2]) : 1);
+        long start = System.nanoTime();
+        Graph graph = generate(spec);
+        long buildTime = System.nanoTime() - start;
+
+        int[] offsets = graph.getOffsets();
+        int maxDegree = 0;
+        for (int i = 0; i + 1 < offsets.length; i++) {
+            maxDegree = Math.max(maxDegree, offsets[i + 1] - offsets[i]);
+        }
+        int[] degrees = new int[maxDegree + 1];
+        for (int i = 0; i + 1 < offsets.length; i++) {
+            degrees[offsets[i + 1] - offsets[i]]++;
+        }
+        double[] lengths = new double[graph.getEdgeCount()];
+        for (int id = 0; id < lengths.length; id++) {
+            lengths[id] = graph.getEdgeById(id).distance;
+        }
+        Arrays.sort(lengths);
+        System.out.printf("%s: %d nodes, %d edges after the 2-core in %d ms%n", topology, graph.getNodes().size(),
+                graph.getEdgeCount(), buildTime / 1_000_000);
+        System.out.println("Degree histogram: " + Arrays.toString(degrees));
+        if (lengths.length > 0) {
+            System.out.printf("Edge length km: p10 %.3f, median %.3f, p90 %.3f, max %.3f%n", lengths[lengths.length / 10],
+                    lengths[lengths.length / 2], lengths[lengths.length * 9 / 10], lengths[lengths.length - 1]);
+        }
+        if (args.length > 3) {
+            GraphSnapshot.write(graph, Path.of(args[3]));
+            System.out.println("Wrote snapshot " + args[3]);
+        }
+    }
+}
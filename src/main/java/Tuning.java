@@ -11,5 +11,10 @@ public class Tuning {
     public static final int MAX_STAGNATION = 25;
     public static final double CROSSOVER_RATE = 0.8;
     public static final double MUTATION_RATE = 0.005;
+    public static final long ANCHOR_NODE_ID = 65296337;
+    public static final int MIGRATION_INTERVAL = 2;
+    public static final int MIGRANTS = 2;
+    public static final int LOCAL_SEARCH_ELITES = 4;
+    public static final long LOCAL_SEARCH_MILLIS = 20;
 
 }
@@ -0,0 +1,123 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares the blossom solver with exhaustive search over every matching of small random graphs.
+class BlossomMatchingTest {
+    private static final int TRIALS = 400;
+
+    // Best (cardinality, cost) over all matchings: more matched pairs wins, then lower cost.
+    private record Best(int pairs, long cost) {
+        Best better(Best other) {
+            if (pairs != other.pairs) {
+                return pairs > other.pairs ? this : other;
+            }
+            return cost <= other.cost ? this : other;
+        }
+    }
+
+    private static Best bruteForce(int n, long[][] cost, boolean[] used, int from) {
+        int v = from;
+        while (v < n && used[v]) {
+            v++;
+        }
+        if (v == n) {
+            return new Best(0, 0);
+        }
+        used[v] = true;
+        Best best = bruteForce(n, cost, used, v + 1);
+        for (int w = v + 1; w < n; w++) {
+            if (!used[w] && cost[v][w] >= 0) {
+                used[w] = true;
+                Best rest = bruteForce(n, cost, used, v + 1);
+                best = best.better(new Best(rest.pairs + 1, rest.cost + cost[v][w]));
+                used[w] = false;
+            }
+        }
+        used[v] = false;
+        return best;
+    }
+
+    private static Best check(int n, long[][] cost, int[] mate) {
+        int pairs = 0;
+        long total = 0;
+        for (int v = 0; v < n; v++) {
+            if (mate[v] < 0) {
+                continue;
+            }
+            assertEquals(v, mate[mate[v]], "mate is not symmetric at " + v);
+            assertTrue(cost[v][mate[v]] >= 0, "matched along a missing edge " + v + "-" + mate[v]);
+            if (v < mate[v]) {
+                pairs++;
+                total += cost[v][mate[v]];
+            }
+        }
+        return new Best(pairs, total);
+    }
+
+    @Test
+    void perfectMatchingOfCompleteGraphsIsOptimal() {
+        Random random = new Random(15);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            int n = 2 * (1 + random.nextInt(5));
+            int[] matrix = new int[n * n];
+            long[][] cost = new long[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    // Mostly small costs so ties and blossoms are common; occasionally the "no path" sentinel.
+                    int c = random.nextInt(20) == 0 ? Integer.MAX_VALUE : random.nextInt(trial % 2 == 0 ? 10 : 1_000_000);
+                    matrix[i * n + j] = c;
+                    cost[i][j] = c;
+                    cost[j][i] = c;
+                }
+            }
+            int[] mate = BlossomMatching.minimumPerfectMatching(n, matrix);
+            Best found = check(n, cost, mate);
+            Best expected = bruteForce(n, cost, new boolean[n], 0);
+            assertEquals(n / 2, found.pairs(), "trial " + trial + ": not perfect");
+            assertEquals(expected.cost(), found.cost(), "trial " + trial + ": n=" + n);
+        }
+    }
+
+    @Test
+    void sparseMatchingIsMaximumThenCheapest() {
+        Random random = new Random(301);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            int n = 1 + random.nextInt(11);
+            double density = 0.15 + 0.6 * random.nextDouble();
+            long[][] cost = new long[n][n];
+            int edges = 0;
+            int[] from = new int[n * n];
+            int[] to = new int[n * n];
+            int[] edgeCost = new int[n * n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    cost[i][j] = -1;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    if (random.nextDouble() < density) {
+                        int c = random.nextInt(12);
+                        cost[i][j] = c;
+                        cost[j][i] = c;
+                        from[edges] = i;
+                        to[edges] = j;
+                        edgeCost[edges] = c;
+                        edges++;
+                    }
+                }
+            }
+            int[] mate = BlossomMatching.minimumCostMatching(n, Arrays.copyOf(from, edges),
+                    Arrays.copyOf(to, edges), Arrays.copyOf(edgeCost, edges));
+            Best found = check(n, cost, mate);
+            Best expected = bruteForce(n, cost, new boolean[n], 0);
+            assertEquals(expected.pairs(), found.pairs(), "trial " + trial + ": not maximum cardinality, n=" + n);
+            assertEquals(expected.cost(), found.cost(), "trial " + trial + ": n=" + n);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// A stand-in for the Overpass interpreter endpoint on localhost. Each POSTed query is decoded from its form body,
+// logged, and answered by the responder.
+class MockOverpass implements AutoCloseable {
+    record Reply(int status, String body) {
+        static Reply ok(String body) {
+            return new Reply(200, body);
+        }
+    }
+
+    private final HttpServer server;
+    private final List<String> queries = new ArrayList<>();
+
+    MockOverpass(Function<String, Reply> responder) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/interpreter", exchange -> {
+            String form = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String query = URLDecoder.decode(form.substring(form.indexOf('=') + 1), StandardCharsets.UTF_8);
+            synchronized (queries) {
+                queries.add(query);
+            }
+            Reply reply = responder.apply(query);
+            byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(reply.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api/interpreter";
+    }
+
+    List<String> queries() {
+        synchronized (queries) {
+            return new ArrayList<>(queries);
+        }
+    }
+
+    static String resource(String name) {
+        try (InputStream in = MockOverpass.class.getResourceAsStream("/overpass/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("missing test resource " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
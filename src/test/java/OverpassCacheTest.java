@@ -0,0 +1,110 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OverpassCacheTest {
+    private static final String QUERY = "[out:json];way[\"highway\"](37.76,-122.42,37.77,-122.41);out;";
+    private static final String ENDPOINT = "https://overpass-api.de/api/interpreter";
+
+    @TempDir
+    Path directory;
+
+    private OverpassCache cache(long maxBytes) {
+        return new OverpassCache(directory, Duration.ofDays(30), maxBytes);
+    }
+
+    private static void store(OverpassCache cache, String endpoint, String query, String body) throws IOException {
+        cache.store(endpoint, query, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))).close();
+    }
+
+    private long filesEndingWith(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).count();
+        }
+    }
+
+    @Test
+    void keyDependsOnEndpoint() throws IOException {
+        assertNotEquals(OverpassCache.key(ENDPOINT, QUERY), OverpassCache.key("http://localhost:8080/api/interpreter", QUERY));
+        assertEquals(OverpassCache.key(ENDPOINT, QUERY), OverpassCache.key(ENDPOINT, "\n  " + QUERY + "\n"));
+
+        OverpassCache cache = cache(Long.MAX_VALUE);
+        store(cache, ENDPOINT, QUERY, "{\"elements\": []}");
+        cache.recordFetch(ENDPOINT, QUERY, Instant.now(), 0, 0);
+
+        assertNull(cache.lookup("http://localhost:8080/api/interpreter", QUERY));
+        try (Reader reader = cache.lookup(ENDPOINT, QUERY)) {
+            assertNotNull(reader);
+        }
+    }
+
+    @Test
+    void evictionSkipsUncommittedBodies() throws IOException {
+        OverpassCache cache = cache(1);
+        store(cache, ENDPOINT, QUERY, "{\"elements\": []}");
+        store(cache, ENDPOINT, "other", "{\"elements\": []}");
+        cache.recordFetch(ENDPOINT, "other", Instant.now(), 0, 0);
+
+        assertTrue(Files.exists(directory.resolve(OverpassCache.key(ENDPOINT, QUERY) + ".json.gz")));
+        assertFalse(Files.exists(directory.resolve(OverpassCache.key(ENDPOINT, "other") + ".json.gz")));
+        assertEquals(0, filesEndingWith(".properties"));
+    }
+
+    @Test
+    void evictionSweepsStaleLeftovers() throws IOException {
+        OverpassCache cache = cache(Long.MAX_VALUE);
+        FileTime twoHoursAgo = FileTime.from(Instant.now().minus(Duration.ofHours(2)));
+        Path staleTemp = Files.writeString(directory.resolve("abc123.tmp"), "partial");
+        Files.setLastModifiedTime(staleTemp, twoHoursAgo);
+        Path freshTemp = Files.writeString(directory.resolve("def456.tmp"), "in flight");
+        store(cache, ENDPOINT, "crashed", "{\"elements\": []}");
+        Path orphan = directory.resolve(OverpassCache.key(ENDPOINT, "crashed") + ".json.gz");
+        Files.setLastModifiedTime(orphan, twoHoursAgo);
+
+        cache.evict();
+
+        assertFalse(Files.exists(staleTemp));
+        assertTrue(Files.exists(freshTemp));
+        assertFalse(Files.exists(orphan));
+    }
+
+    @Test
+    void partialResponseIsNotCached() throws IOException {
+        String query = new Overpasser.BoundingBox(37.760, -122.422, 37.764, -122.417).query();
+        boolean[] partial = {true};
+        try (MockOverpass server = new MockOverpass(q -> MockOverpass.Reply.ok(
+                MockOverpass.resource(partial[0] ? "timeout.json" : "mission.json")))) {
+            OverpassCache cache = cache(Long.MAX_VALUE);
+            assertThrows(RuntimeException.class, () -> new Overpasser(server.url(), cache).request(query));
+            assertEquals(0, filesEndingWith(".json.gz"));
+            assertNull(cache.lookup(server.url(), query));
+
+            partial[0] = false;
+            new Overpasser(server.url(), cache).request(query);
+            Overpasser cached = new Overpasser(server.url(), cache);
+            cached.request(query);
+
+            assertEquals(2, server.queries().size());
+            assertEquals(8, cached.getNodes().size());
+            assertEquals(3, cached.getWays().size());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OverpasserTest {
+    private static final String QUERY = new Overpasser.BoundingBox(37.760, -122.422, 37.764, -122.417).query();
+    private MockOverpass server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private Overpasser fetch(MockOverpass.Reply reply) throws IOException {
+        server = new MockOverpass(query -> reply);
+        Overpasser overpasser = new Overpasser(server.url(), null);
+        overpasser.request(QUERY);
+        return overpasser;
+    }
+
+    @Test
+    void parsesRecordedResponse() throws IOException {
+        Overpasser overpasser = fetch(MockOverpass.Reply.ok(MockOverpass.resource("mission.json")));
+
+        assertEquals(List.of(QUERY), server.queries());
+        assertEquals(8, overpasser.getNodes().size());
+        Graph.Node first = overpasser.getNodes().get(0);
+        assertEquals(65296337L, first.id);
+        assertEquals(37.7602519, first.lat, 1e-9);
+        assertEquals(-122.4213844, first.lon, 1e-9);
+    }
+
+    @Test
+    void keepsOnlyDrivableHighways() throws IOException {
+        Overpasser overpasser = fetch(MockOverpass.Reply.ok(MockOverpass.resource("mission.json")));
+
+        List<Graph.Way> ways = overpasser.getWays();
+        assertEquals(List.of(8915001L, 8915002L, 8915006L), ways.stream().map(way -> way.id).toList());
+        assertEquals("Valencia Street", ways.get(0).name);
+        assertEquals(3, ways.get(0).nodes.size());
+        assertEquals("secondary", ways.get(1).getTags().get("highway"));
+        assertNull(ways.get(2).name);
+    }
+
+    @Test
+    void partialResponseFails() throws IOException {
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> fetch(MockOverpass.Reply.ok(MockOverpass.resource("timeout.json"))));
+
+        assertInstanceOf(IOException.class, error.getCause());
+        assertTrue(error.getCause().getMessage().contains("Query timed out"), error.getCause().getMessage());
+    }
+
+    @Test
+    void httpErrorFails() {
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> fetch(new MockOverpass.Reply(504, "Gateway Timeout")));
+
+        assertTrue(error.getMessage().contains("HTTP 504"), error.getMessage());
+    }
+
+    @Test
+    void documentWithoutElementsYieldsNothing() {
+        Overpasser overpasser = new Overpasser("http://localhost:0", null);
+        overpasser.convertJSON("{\"version\": 0.6, \"elements\": {}}");
+        overpasser.convertJSON("{}");
+
+        assertTrue(overpasser.getNodes().isEmpty());
+        assertTrue(overpasser.getWays().isEmpty());
+    }
+
+    @Test
+    void nonObjectDocumentIsIgnored() {
+        Overpasser overpasser = new Overpasser("http://localhost:0", null);
+        overpasser.convertJSON("[{\"type\": \"node\", \"id\": 1, \"lat\": 0, \"lon\": 0}]");
+
+        assertTrue(overpasser.getNodes().isEmpty());
+        assertTrue(overpasser.getWays().isEmpty());
+    }
+}
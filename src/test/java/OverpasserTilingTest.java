@@ -0,0 +1,144 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two side-by-side tiles that share the nodes and the way crossing their boundary, served by a local mock.
+class OverpasserTilingTest {
+    private static final Overpasser.BoundingBox AREA = new Overpasser.BoundingBox(37.760, -122.430, 37.770, -122.410);
+    private static final double TILE_DEGREES = 0.01;
+    private static final Overpasser.BoundingBox WEST = AREA.split(TILE_DEGREES).get(0);
+    private static final Overpasser.BoundingBox EAST = AREA.split(TILE_DEGREES).get(1);
+    private static final Pattern WEST_EDGE = Pattern.compile("\\([-0-9.]+,([-0-9.]+),");
+    private static final String WEST_BODY = body("""
+            {"type": "node", "id": 1, "lat": 37.765, "lon": -122.428},
+            {"type": "node", "id": 2, "lat": 37.765, "lon": -122.422},
+            {"type": "node", "id": 3, "lat": 37.765, "lon": -122.418},
+            {"type": "way", "id": 10, "nodes": [1, 2], "tags": {"highway": "residential", "name": "West Street"}},
+            {"type": "way", "id": 11, "nodes": [2, 3], "tags": {"highway": "primary", "name": "Boundary Avenue"}}
+            """);
+    private static final String EAST_BODY = body("""
+            {"type": "node", "id": 2, "lat": 37.765, "lon": -122.422},
+            {"type": "node", "id": 3, "lat": 37.765, "lon": -122.418},
+            {"type": "node", "id": 4, "lat": 37.765, "lon": -122.412},
+            {"type": "way", "id": 11, "nodes": [2, 3], "tags": {"highway": "primary", "name": "Boundary Avenue"}},
+            {"type": "way", "id": 12, "nodes": [3, 4], "tags": {"highway": "tertiary", "name": "East Street"}}
+            """);
+
+    @TempDir
+    Path cacheDirectory;
+
+    private final Map<Boolean, AtomicInteger> hits = new ConcurrentHashMap<>(Map.of(true, new AtomicInteger(), false, new AtomicInteger()));
+
+    private static String body(String elements) {
+        return "{\"version\": 0.6, \"elements\": [" + elements + "]}";
+    }
+
+    private static boolean isWest(String query) {
+        Matcher matcher = WEST_EDGE.matcher(query);
+        assertTrue(matcher.find(), query);
+        return Double.parseDouble(matcher.group(1)) < WEST.east();
+    }
+
+    // Serves the two tiles; the east tile answers with the given status for its first failures requests.
+    private MockOverpass server(int eastFailures, int status) throws IOException {
+        return new MockOverpass(query -> {
+            boolean west = isWest(query);
+            int hit = hits.get(west).incrementAndGet();
+            if (!west && hit <= eastFailures) {
+                return new MockOverpass.Reply(status, "busy");
+            }
+            return MockOverpass.Reply.ok(west ? WEST_BODY : EAST_BODY);
+        });
+    }
+
+    private OverpassCache cache() {
+        return new OverpassCache(cacheDirectory, Duration.ofDays(30), Long.MAX_VALUE);
+    }
+
+    @Test
+    void tilesAreMergedWithoutDuplicates() throws IOException {
+        try (MockOverpass server = server(0, 200)) {
+            Overpasser overpasser = new Overpasser(server.url(), null, 1);
+            overpasser.requestTiled(AREA, TILE_DEGREES, 2);
+
+            assertEquals(2, server.queries().size());
+            assertEquals(List.of(1L, 2L, 3L, 4L), overpasser.getNodes().stream().map(node -> node.id).sorted().toList());
+            assertEquals(List.of(10L, 11L, 12L), overpasser.getWays().stream().map(way -> way.id).sorted().toList());
+        }
+    }
+
+    @Test
+    void failedTileIsRetried() throws IOException {
+        try (MockOverpass server = server(1, 503)) {
+            Overpasser overpasser = new Overpasser(server.url(), cache(), 1);
+            overpasser.requestTiled(AREA, TILE_DEGREES, 2);
+
+            assertEquals(1, hits.get(true).get());
+            assertEquals(2, hits.get(false).get());
+            assertEquals(4, overpasser.getNodes().size());
+            assertEquals(3, overpasser.getWays().size());
+        }
+    }
+
+    @Test
+    void retryBypassesTheCache() throws IOException {
+        try (MockOverpass server = server(0, 200)) {
+            // A cut-off response committed to the cache by an older build: the first attempt reads it and fails.
+            OverpassCache cache = cache();
+            String westQuery = WEST.query();
+            cache.store(server.url(), westQuery, new ByteArrayInputStream(
+                    MockOverpass.resource("timeout.json").getBytes(StandardCharsets.UTF_8))).close();
+            cache.recordFetch(server.url(), westQuery, Instant.now(), 2, 0);
+
+            Overpasser overpasser = new Overpasser(server.url(), cache, 1);
+            overpasser.requestTiled(AREA, TILE_DEGREES, 2);
+
+            assertEquals(1, hits.get(true).get());
+            assertEquals(3, overpasser.getWays().size());
+            Overpasser cached = new Overpasser(server.url(), cache);
+            cached.request(westQuery);
+            assertEquals(2, cached.getWays().size());
+            assertEquals(1, hits.get(true).get());
+        }
+    }
+
+    @Test
+    void exhaustedTileFailsTheWholeRequest() throws IOException {
+        long backoff = 20;
+        try (MockOverpass server = server(Integer.MAX_VALUE, 500)) {
+            Overpasser overpasser = new Overpasser(server.url(), null, backoff);
+            long start = System.nanoTime();
+            RuntimeException error = assertThrows(RuntimeException.class,
+                    () -> overpasser.requestTiled(AREA, TILE_DEGREES, 2));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue(error.getMessage().startsWith("1 of 2 tiles failed"), error.getMessage());
+            assertTrue(error.getMessage().contains("HTTP 500"), error.getMessage());
+            assertEquals(Overpasser.MAX_TILE_ATTEMPTS, hits.get(false).get());
+            // Delays double from the base: 20 + 40 + 80 ms before the last attempt, plus jitter.
+            long minimum = 0;
+            for (int attempt = 1; attempt < Overpasser.MAX_TILE_ATTEMPTS; attempt++) {
+                minimum += backoff << (attempt - 1);
+            }
+            assertTrue(elapsedMillis >= minimum, elapsedMillis + " ms < " + minimum + " ms");
+            assertEquals(new HashSet<>(List.of(WEST.query(), EAST.query())), new HashSet<>(server.queries()));
+        }
+    }
+}